@@ -0,0 +1,399 @@
+package example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Best Adaptation (Algorithm 2 in Ding et al., 2021): bound every vertex of a
+ * projection by {@code lambda} triangles by deleting edges from it.
+ * <p>
+ * Vertices are visited in index order. While a vertex is over budget, the
+ * edge to its neighbour with the most triangles is deleted if that neighbour
+ * has at least {@code lambda} triangles; otherwise the edge whose support is
+ * closest to the vertex's excess is deleted. Deletions only touch the
+ * in-memory projection and the counts in the {@link TriangleCounter}.
+ * <p>
+ * A run only depends on the counts and the vertex it has reached, so a run
+ * stopped by its {@link Termination} can be picked up later with
+ * {@link #run(int)} from {@link #next()}, on the same counts, and ends exactly
+ * where an uninterrupted run would.
+ */
+public class BestAdaptation {
+
+    /**
+     * The most vertices {@link #runParallel(int, long)} bounds per round. A
+     * constant rather than a multiple of the thread count, so that the
+     * result does not depend on the thread count.
+     */
+    static final int ROUND_SIZE = 4096;
+
+    /**
+     * {@link #runParallel(int, long)} stops building rounds once a round takes
+     * fewer than one in this many of the over-budget vertices it considered,
+     * and bounds the rest one at a time. Vertices around a shared hub can only
+     * be taken one per round, and rescanning them all for every round would
+     * cost time quadratic in their number.
+     */
+    static final int MIN_ROUND_SHARE = 8;
+
+    private final TriangleCounter counter;
+    private final GraphProjection graph;
+    private final int lambda;
+    private final RunStats stats;
+    private final Termination termination;
+    private int next;
+
+    public BestAdaptation(TriangleCounter counter, int lambda)
+    {
+        this(counter, lambda, null);
+    }
+
+    /**
+     * @param stats  Where to report progress, or null
+     */
+    public BestAdaptation(TriangleCounter counter, int lambda, RunStats stats)
+    {
+        this(counter, lambda, stats, Termination.NONE);
+    }
+
+    /**
+     * @param stats  Where to report progress, or null
+     * @param termination  Checked before every vertex that is over budget, every 64 deletions
+     *                     while bounding one, and every 1024 vertices otherwise
+     */
+    public BestAdaptation(TriangleCounter counter, int lambda, RunStats stats, Termination termination)
+    {
+        this.counter = counter;
+        this.graph = counter.graph();
+        this.lambda = lambda;
+        this.stats = stats;
+        this.termination = termination;
+    }
+
+    /**
+     * Count the triangles of {@code graph} and bound it by {@code lambda}.
+     *
+     * @param concurrency  The number of threads used for the initial count
+     * @return  The triangle counts after the deletions
+     */
+    public static TriangleCounter truncate(GraphProjection graph, int lambda, int concurrency)
+    {
+        // Counted once; every deletion below updates the counts in place
+        TriangleCounter counter = TriangleCounter.count(graph, concurrency);
+        new BestAdaptation(counter, lambda).run();
+
+        return counter;
+    }
+
+    /**
+     * Delete edges until no vertex has more than {@code lambda} triangles.
+     */
+    public void run()
+    {
+        run(0);
+    }
+
+    /**
+     * Bound the vertices from {@code from} on, the ones before it having
+     * been bounded already.
+     */
+    public void run(int from)
+    {
+        int nodeTriCount[] = counter.vertexTriangles();
+        // One queue for every vertex, so the loop stops allocating once it has seen the largest degree
+        NeighborQueue neighbors = null;
+        next = from;
+
+        for (int nodeId = from; nodeId < graph.nodeCount(); nodeId++)
+        {
+            next = nodeId;
+            if (stats != null)
+            {
+                stats.visited(nodeId + 1);
+            }
+            if (nodeTriCount[nodeId] <= lambda)
+            {
+                if ((nodeId & 1023) == 0)
+                {
+                    termination.check();
+                }
+                continue;
+            }
+            termination.check();
+            if (neighbors == null)
+            {
+                neighbors = new NeighborQueue(counter, graph, nodeId);
+            }
+            else
+            {
+                neighbors.reset(nodeId);
+            }
+
+            bound(nodeId, neighbors, null);
+            if (stats != null)
+            {
+                stats.truncated();
+            }
+        }
+        next = graph.nodeCount();
+    }
+
+    /**
+     * Bound the graph on {@code concurrency} threads.
+     * <p>
+     * Only vertices over budget at the start need visiting, as counts never
+     * grow. They are shuffled with {@code seed} and bounded in rounds: each
+     * round takes, in shuffled order, every pending vertex whose closed
+     * neighbourhood shares no vertex with that of a vertex already taken,
+     * up to {@link #ROUND_SIZE} of them. Bounding a vertex only reads and
+     * writes the counts of its closed neighbourhood and the support of edges
+     * inside it, so the vertices of a round can be bounded in any order or
+     * at once with the same outcome, and the result depends on {@code seed}
+     * alone, not on {@code concurrency} or scheduling. It is as
+     * lambda-bounded as {@link #run()}'s, but visiting vertices in a
+     * different order deletes different edges.
+     * <p>
+     * Vertices sharing a hub can only be bounded one per round. Once a round
+     * takes fewer than one in {@link #MIN_ROUND_SHARE} of the vertices it
+     * considered, the vertices still pending are bounded one at a time in
+     * their shuffled order instead, which still depends on {@code seed} alone.
+     * <p>
+     * Termination is checked between rounds, and before every vertex bounded
+     * one at a time.
+     */
+    public void runParallel(int concurrency, long seed)
+    {
+        int n = graph.nodeCount();
+        int nodeTriCount[] = counter.vertexTriangles();
+
+        int[] pending = new int[n];
+        int pendingCount = 0;
+        for (int u = 0; u < n; u++)
+        {
+            if (nodeTriCount[u] > lambda)
+            {
+                pending[pendingCount++] = u;
+            }
+        }
+        if (stats != null)
+        {
+            stats.visited(n - pendingCount);
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = pendingCount - 1; i > 0; i--)
+        {
+            int j = random.nextInt(i + 1);
+            int swap = pending[i];
+            pending[i] = pending[j];
+            pending[j] = swap;
+        }
+
+        // claimed[v] == round while v is in the closed neighbourhood of a vertex taken this round
+        int[] claimed = new int[n];
+        int[] taken = new int[ROUND_SIZE];
+        ThreadLocal<NeighborQueue> queues = new ThreadLocal<NeighborQueue>();
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, concurrency));
+        try
+        {
+            for (int round = 1; pendingCount > 0; round++)
+            {
+                termination.check();
+
+                int takenCount = 0;
+                int candidates = 0;
+                int kept = 0;
+                int i = 0;
+                for (; i < pendingCount && takenCount < ROUND_SIZE; i++)
+                {
+                    int u = pending[i];
+                    if (nodeTriCount[u] <= lambda)
+                    {
+                        continue;
+                    }
+                    candidates++;
+                    if (claim(u, claimed, round))
+                    {
+                        taken[takenCount++] = u;
+                    }
+                    else
+                    {
+                        pending[kept++] = u;
+                    }
+                }
+                // Vertices not reached this round keep their place after the deferred ones
+                System.arraycopy(pending, i, pending, kept, pendingCount - i);
+                pendingCount = kept + pendingCount - i;
+
+                int chunks = Math.min(takenCount, Math.max(1, concurrency) * 4);
+                List<ForkJoinTask<long[]>> tasks = new ArrayList<ForkJoinTask<long[]>>(chunks);
+                for (int c = 0; c < chunks; c++)
+                {
+                    final int from = (int) ((long) takenCount * c / chunks);
+                    final int to = (int) ((long) takenCount * (c + 1) / chunks);
+                    tasks.add(pool.submit(() -> {
+                        long[] deleted = new long[2];
+                        for (int t = from; t < to; t++)
+                        {
+                            NeighborQueue neighbors = queues.get();
+                            if (neighbors == null)
+                            {
+                                neighbors = new NeighborQueue(counter, graph, taken[t]);
+                                queues.set(neighbors);
+                            }
+                            else
+                            {
+                                neighbors.reset(taken[t]);
+                            }
+                            bound(taken[t], neighbors, deleted);
+                        }
+                        return deleted;
+                    }));
+                }
+
+                long edges = 0;
+                long triangles = 0;
+                for (ForkJoinTask<long[]> task : tasks)
+                {
+                    long[] deleted = task.join();
+                    edges += deleted[0];
+                    triangles += deleted[1];
+                }
+                if (stats != null)
+                {
+                    stats.visited(n - pendingCount);
+                    stats.bounded(takenCount, edges, triangles);
+                }
+
+                if ((long) takenCount * MIN_ROUND_SHARE < candidates)
+                {
+                    break;
+                }
+            }
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+
+        // Rounds got too small to pay for their scan; the rest share hubs
+        NeighborQueue neighbors = null;
+        for (int i = 0; i < pendingCount; i++)
+        {
+            int u = pending[i];
+            if (nodeTriCount[u] <= lambda)
+            {
+                continue;
+            }
+            termination.check();
+            if (neighbors == null)
+            {
+                neighbors = new NeighborQueue(counter, graph, u);
+            }
+            else
+            {
+                neighbors.reset(u);
+            }
+            bound(u, neighbors, null);
+            if (stats != null)
+            {
+                stats.visited(n - pendingCount + i + 1);
+                stats.truncated();
+            }
+        }
+        if (stats != null)
+        {
+            stats.visited(n);
+        }
+        next = n;
+    }
+
+    /**
+     * Take {@code u} for this round if no vertex of its closed neighbourhood
+     * has been claimed yet, and claim them all.
+     */
+    private boolean claim(int u, int[] claimed, int round)
+    {
+        if (claimed[u] == round)
+        {
+            return false;
+        }
+        for (int slot = graph.start(u); slot < graph.end(u); slot++)
+        {
+            if (!graph.isRemoved(slot) && claimed[graph.target(slot)] == round)
+            {
+                return false;
+            }
+        }
+
+        claimed[u] = round;
+        for (int slot = graph.start(u); slot < graph.end(u); slot++)
+        {
+            if (!graph.isRemoved(slot))
+            {
+                claimed[graph.target(slot)] = round;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Delete edges of {@code nodeId} until it is within budget.
+     *
+     * @param neighbors  A queue reset to {@code nodeId}
+     * @param deleted  Where to add the edges deleted and triangles destroyed, or null to report each deletion to the stats
+     */
+    private void bound(int nodeId, NeighborQueue neighbors, long[] deleted)
+    {
+        int nodeTriCount[] = counter.vertexTriangles();
+        // A hub can take many deletions; stopping part way leaves the counts exact for a resumed run
+        for (int deletions = 1; nodeTriCount[nodeId] > lambda; deletions++)
+        {
+            if ((deletions & 63) == 0)
+            {
+                termination.check();
+            }
+
+            // Neighbour with the most triangles
+            int k = neighbors.maxNeighbor();
+            int temp = k < 0 ? 0 : nodeTriCount[k];
+
+            if(temp < lambda)
+            {
+                //Line 16: the edge whose support is closest to the excess
+                // Note: I used '<' instead of '>'. I think '>' is a mistake in the paper since minTemp is set to INT MAX
+                temp = nodeTriCount[nodeId] - lambda;
+                k = neighbors.closestSupport(temp);
+            }
+
+            if (k < 0)
+            {
+                break;
+            }
+
+            //Delete edge v_i -> v_k from the projection, updating the triangle counts it touches
+            neighbors.remove(k);
+            int destroyed = counter.removeEdge(nodeId, k, neighbors);
+            if (deleted != null)
+            {
+                deleted[0]++;
+                deleted[1] += destroyed;
+            }
+            else if (stats != null)
+            {
+                stats.edgeDeleted(destroyed);
+            }
+        }
+    }
+
+    /**
+     * @return  The first vertex that is not bounded yet: where {@link #run(int)}
+     *          picks up after an interrupted run, or the vertex count once it has finished
+     */
+    public int next()
+    {
+        return next;
+    }
+}
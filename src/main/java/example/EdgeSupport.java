@@ -0,0 +1,93 @@
+package example;
+
+/**
+ * Per-edge triangle support (the number of triangles an edge belongs to) for
+ * the edges of a {@link GraphProjection}.
+ * <p>
+ * Values are keyed by slot, so memory is one int per stored edge direction,
+ * O(m), instead of a dense node-by-node matrix. Both directions of an edge are
+ * always updated together, so a value can be read from either endpoint in
+ * O(1) while scanning its neighbour segment. The values are stored next to
+ * the projection's own slot arrays, on the heap or memory-mapped.
+ */
+public class EdgeSupport {
+
+    private final GraphProjection graph;
+    private final IntArray support;
+
+    public EdgeSupport(GraphProjection graph)
+    {
+        this.graph = graph;
+        this.support = graph.newSlotArray(graph.slotCount());
+    }
+
+    /**
+     * @param graph  A copy of this support's projection, see {@link GraphProjection#copy()}
+     * @return  The same values, for {@code graph}
+     */
+    public EdgeSupport copy(GraphProjection graph)
+    {
+        EdgeSupport copy = new EdgeSupport(graph);
+        for (int slot = 0; slot < graph.slotCount(); slot++)
+        {
+            copy.support.set(slot, support.get(slot));
+        }
+        return copy;
+    }
+
+    /**
+     * @return  The support of the edge stored at {@code slot}
+     */
+    public int get(int slot)
+    {
+        return support.get(slot);
+    }
+
+    /**
+     * @return  The support of the edge between {@code u} and {@code v}, or 0 if there is no such edge
+     */
+    public int get(int u, int v)
+    {
+        int slot = graph.findSlot(u, v);
+        return slot < 0 ? 0 : support.get(slot);
+    }
+
+    public void increment(int slot)
+    {
+        support.add(slot, 1);
+        support.add(graph.mirror(slot), 1);
+    }
+
+    public void decrement(int slot)
+    {
+        support.add(slot, -1);
+        support.add(graph.mirror(slot), -1);
+    }
+
+    /**
+     * Increment one direction of an edge only, atomically if {@code concurrent}.
+     * Used while counting, before {@link #copyToMirror(int)}.
+     */
+    void incrementDirected(int slot, boolean concurrent)
+    {
+        if (concurrent)
+        {
+            support.addAtomic(slot, 1);
+        }
+        else
+        {
+            support.add(slot, 1);
+        }
+    }
+
+    void copyToMirror(int slot)
+    {
+        support.set(graph.mirror(slot), support.get(slot));
+    }
+
+    public void clear(int slot)
+    {
+        support.set(slot, 0);
+        support.set(graph.mirror(slot), 0);
+    }
+}
@@ -0,0 +1,741 @@
+package example;
+
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.Transaction;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * In-memory compressed sparse row (CSR) projection of the undirected graph
+ * induced by a single node label, optionally restricted to some relationship
+ * types (see {@link GraphScope}).
+ * <p>
+ * Nodes are renumbered to dense indices {@code 0..n-1} in ascending Neo4j id
+ * order. The neighbours of dense node {@code u} live in
+ * {@code targets[offsets[u] .. offsets[u + 1])}, sorted ascending and without
+ * duplicates or self loops. Every undirected edge is stored twice, once from
+ * each endpoint; a position in {@code targets} is called a slot.
+ * <p>
+ * {@link #mirror(int)} maps the slot of {@code u -> v} to the slot of
+ * {@code v -> u}, so per-edge values can be kept symmetric.
+ * <p>
+ * Edges can be removed after loading. A removed slot stays in place (so slot
+ * indices remain stable) and is only flagged, which keeps the neighbour
+ * segments sorted. The flags are packed 64 to a word and set atomically, so
+ * threads may remove edges concurrently as long as no two remove edges at the
+ * same vertex.
+ * <p>
+ * Optionally the projection also remembers the ids of the relationships behind
+ * every edge (there may be several between the same pair of nodes), so removed
+ * edges can be written back to the store without searching for them again.
+ * <p>
+ * The slot arrays (neighbours and mirrors) can be spilled to memory-mapped
+ * files instead of the heap for graphs that do not fit next to the page
+ * cache; so can every other per-slot array allocated through
+ * {@link #newSlotArray(int)}. Counting scans them in vertex order, so access
+ * to the files is mostly sequential.
+ * <p>
+ * Hubs, vertices whose segment holds at least {@link #MIN_HUB_DEGREE} and at
+ * least {@code n/32} slots, also get a bitset of their neighbours (see
+ * {@link #hubNeighbors(int)}), so intersections with them can test
+ * membership in O(1). At {@code n/32} neighbours the bitset is no larger than
+ * the hub's own segment.
+ */
+public class GraphProjection {
+
+    static final int MIN_HUB_DEGREE = 1024;
+
+    private final long[] nodeIds;
+    private final int[] offsets;
+    private final IntArray targets;
+    private final IntArray mirrors;
+    private final int[] degrees;
+    private final long[] removed;
+
+    // Hubs in ascending order, and the neighbours of each as a bitset over dense ids
+    private final int hubDegree;
+    private final int[] hubs;
+    private final long[][] hubNeighbors;
+
+    private static final VarHandle REMOVED = MethodHandles.arrayElementVarHandle(long[].class);
+
+    // Where slot arrays are mapped, or null to keep them on the heap
+    private final Path spillDirectory;
+
+    // What was loaded, or null for a projection built from an edge list
+    private final GraphScope scope;
+
+    // Relationship ids per slot, only filled for slots u -> v with u < v
+    private final int[] relationshipOffsets;
+    private final long[] relationshipIds;
+
+    private GraphProjection(long[] nodeIds, int[] offsets, IntArray targets, Path spillDirectory, GraphScope scope,
+                            int[] relationshipOffsets, long[] relationshipIds)
+    {
+        this.nodeIds = nodeIds;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.spillDirectory = spillDirectory;
+        this.scope = scope;
+        this.relationshipOffsets = relationshipOffsets;
+        this.relationshipIds = relationshipIds;
+        this.mirrors = newSlotArray(offsets[nodeIds.length]);
+        this.degrees = new int[nodeIds.length];
+        this.removed = new long[(offsets[nodeIds.length] + 63) >>> 6];
+
+        // Visiting u in ascending order reaches the entries for u in each
+        // neighbour's segment in ascending order too, so a cursor per node
+        // finds every mirror slot in a single pass.
+        int[] cursors = Arrays.copyOf(offsets, nodeIds.length);
+        for (int u = 0; u < nodeIds.length; u++)
+        {
+            degrees[u] = offsets[u + 1] - offsets[u];
+            for (int slot = offsets[u]; slot < offsets[u + 1]; slot++)
+            {
+                mirrors.set(slot, cursors[targets.get(slot)]++);
+            }
+        }
+
+        this.hubDegree = Math.max(MIN_HUB_DEGREE, (nodeIds.length + 31) / 32);
+        int hubCount = 0;
+        for (int u = 0; u < nodeIds.length; u++)
+        {
+            if (offsets[u + 1] - offsets[u] >= hubDegree)
+            {
+                hubCount++;
+            }
+        }
+        this.hubs = new int[hubCount];
+        this.hubNeighbors = new long[hubCount][];
+        for (int u = 0, h = 0; u < nodeIds.length; u++)
+        {
+            if (offsets[u + 1] - offsets[u] >= hubDegree)
+            {
+                long[] bits = new long[(nodeIds.length + 63) >>> 6];
+                for (int slot = offsets[u]; slot < offsets[u + 1]; slot++)
+                {
+                    int v = targets.get(slot);
+                    bits[v >>> 6] |= 1L << v;
+                }
+                hubs[h] = u;
+                hubNeighbors[h++] = bits;
+            }
+        }
+    }
+
+    private GraphProjection(GraphProjection source)
+    {
+        this.nodeIds = source.nodeIds;
+        this.offsets = source.offsets;
+        this.targets = source.targets;
+        this.mirrors = source.mirrors;
+        this.spillDirectory = source.spillDirectory;
+        this.scope = source.scope;
+        this.relationshipOffsets = source.relationshipOffsets;
+        this.relationshipIds = source.relationshipIds;
+        this.degrees = source.degrees.clone();
+        this.removed = source.removed.clone();
+        this.hubDegree = source.hubDegree;
+        this.hubs = source.hubs;
+        this.hubNeighbors = source.hubNeighbors;
+    }
+
+    /**
+     * @return  A projection with the same edges, removed ones included, whose
+     *          edges can be removed without affecting this one. Only the
+     *          degrees and removal flags are copied; the slot arrays are shared.
+     */
+    public GraphProjection copy()
+    {
+        return new GraphProjection(this);
+    }
+
+    /**
+     * Load every node carrying {@code label}, and every relationship between two
+     * such nodes, into a new projection.
+     *
+     * @param tx  The transaction used to read the store
+     * @param label  The label of the projected nodes
+     * @return  The projected graph
+     */
+    public static GraphProjection load(Transaction tx, Label label)
+    {
+        return load(tx, label, false);
+    }
+
+    /**
+     * Like {@link #load(Transaction, Label)}, optionally keeping the relationship
+     * ids needed by {@link #removedRelationshipIds()}.
+     */
+    public static GraphProjection load(Transaction tx, Label label, boolean withRelationshipIds)
+    {
+        return load(tx, GraphScope.of(label), withRelationshipIds, null);
+    }
+
+    /**
+     * Like {@link #load(Transaction, Label, boolean)}, writing the slot arrays
+     * to memory-mapped files in {@code spillDirectory} as they are built, so
+     * they never occupy the heap. The files are deleted once the projection is
+     * garbage collected.
+     *
+     * @param spillDirectory  The directory for the mapped files, or null to keep everything on the heap
+     */
+    public static GraphProjection load(Transaction tx, Label label, boolean withRelationshipIds, Path spillDirectory)
+    {
+        return load(tx, GraphScope.of(label), withRelationshipIds, spillDirectory);
+    }
+
+    /**
+     * Load the nodes and relationships selected by {@code scope} into a new
+     * projection. Nodes are numbered densely whatever their Neo4j ids, so
+     * every per-node array is sized to the projected nodes only.
+     *
+     * @param spillDirectory  The directory for the mapped files, or null to keep everything on the heap
+     */
+    public static GraphProjection load(Transaction tx, GraphScope scope, boolean withRelationshipIds, Path spillDirectory)
+    {
+        return load(tx, scope, withRelationshipIds, spillDirectory, Termination.NONE);
+    }
+
+    /**
+     * Like {@link #load(Transaction, GraphScope, boolean, Path)}, checking
+     * {@code termination} every few thousand nodes.
+     */
+    public static GraphProjection load(Transaction tx, GraphScope scope, boolean withRelationshipIds, Path spillDirectory,
+                                       Termination termination)
+    {
+        long[] nodeIds = new long[16];
+        int n = 0;
+        try (ResourceIterator<Node> it = tx.findNodes(scope.label()))
+        {
+            while (it.hasNext())
+            {
+                if ((n & 4095) == 0)
+                {
+                    termination.check();
+                }
+                if (n == nodeIds.length)
+                {
+                    nodeIds = Arrays.copyOf(nodeIds, n * 2);
+                }
+                nodeIds[n++] = it.next().getId();
+            }
+        }
+        nodeIds = Arrays.copyOf(nodeIds, n);
+        Arrays.sort(nodeIds);
+
+        RelationshipType[] types = scope.relationshipTypes();
+        Builder builder = new Builder(n, withRelationshipIds, spillDirectory);
+        long[] scratch = new long[16];
+        long[] scratchIds = new long[16];
+
+        if (scope.direction() == Direction.BOTH)
+        {
+            // Both ends see every relationship, so each segment is complete once its node has been read
+            for (int u = 0; u < n; u++)
+            {
+                if ((u & 4095) == 0)
+                {
+                    termination.check();
+                }
+                int count = 0;
+                for (Relationship rel : tx.getNodeById(nodeIds[u]).getRelationships(Direction.BOTH, types))
+                {
+                    int v = Arrays.binarySearch(nodeIds, rel.getOtherNodeId(nodeIds[u]));
+                    if (v < 0 || v == u)
+                    {
+                        continue;
+                    }
+                    if (count == scratch.length)
+                    {
+                        scratch = Arrays.copyOf(scratch, count * 2);
+                        scratchIds = Arrays.copyOf(scratchIds, count * 2);
+                    }
+                    // Sort by neighbour, remembering where the relationship id is
+                    scratchIds[count] = rel.getId();
+                    scratch[count] = ((long) v << 32) | count;
+                    count++;
+                }
+                builder.segment(u, scratch, scratchIds, count);
+            }
+        }
+        else
+        {
+            // Every relationship is read once, at one end, and buffered until both segments are known
+            int[] sources = new int[16];
+            int[] targets = new int[16];
+            long[] ids = new long[withRelationshipIds ? 16 : 0];
+            int m = 0;
+            for (int u = 0; u < n; u++)
+            {
+                if ((u & 4095) == 0)
+                {
+                    termination.check();
+                }
+                for (Relationship rel : tx.getNodeById(nodeIds[u]).getRelationships(scope.direction(), types))
+                {
+                    int v = Arrays.binarySearch(nodeIds, rel.getOtherNodeId(nodeIds[u]));
+                    if (v < 0 || v == u)
+                    {
+                        continue;
+                    }
+                    if (m == sources.length)
+                    {
+                        sources = Arrays.copyOf(sources, m * 2);
+                        targets = Arrays.copyOf(targets, m * 2);
+                    }
+                    if (withRelationshipIds && m == ids.length)
+                    {
+                        ids = Arrays.copyOf(ids, m * 2);
+                    }
+                    sources[m] = u;
+                    targets[m] = v;
+                    if (withRelationshipIds)
+                    {
+                        ids[m] = rel.getId();
+                    }
+                    m++;
+                }
+            }
+
+            int[] starts = new int[n + 1];
+            for (int e = 0; e < m; e++)
+            {
+                starts[sources[e] + 1]++;
+                starts[targets[e] + 1]++;
+            }
+            for (int u = 0; u < n; u++)
+            {
+                starts[u + 1] += starts[u];
+            }
+            // Entry i of u's bucket: the neighbour in the high half, the buffered edge in the low half
+            long[] buckets = new long[2 * m];
+            int[] cursors = Arrays.copyOf(starts, n);
+            for (int e = 0; e < m; e++)
+            {
+                buckets[cursors[sources[e]]++] = ((long) targets[e] << 32) | e;
+                buckets[cursors[targets[e]]++] = ((long) sources[e] << 32) | e;
+            }
+
+            for (int u = 0; u < n; u++)
+            {
+                int count = starts[u + 1] - starts[u];
+                if (count > scratch.length)
+                {
+                    scratch = new long[count];
+                    scratchIds = new long[count];
+                }
+                for (int i = 0; i < count; i++)
+                {
+                    long entry = buckets[starts[u] + i];
+                    scratch[i] = (entry & 0xFFFFFFFF00000000L) | i;
+                    scratchIds[i] = withRelationshipIds ? ids[(int) entry] : -1;
+                }
+                builder.segment(u, scratch, scratchIds, count);
+            }
+        }
+
+        return builder.build(nodeIds, scope);
+    }
+
+    /**
+     * Appends the sorted, deduplicated neighbour segments of the nodes in
+     * order, together with the relationship ids behind them.
+     */
+    private static final class Builder {
+        private final int[] offsets;
+        private final IntArray targets;
+        private final Path spillDirectory;
+        private final boolean withRelationshipIds;
+        private int size;
+
+        private int[] relationshipOffsets;
+        private long[] relationshipIds;
+        private int relationshipCount;
+
+        Builder(int nodeCount, boolean withRelationshipIds, Path spillDirectory)
+        {
+            this.offsets = new int[nodeCount + 1];
+            this.targets = spillDirectory == null ? IntArray.heap(16) : MappedIntArray.open(spillDirectory);
+            this.spillDirectory = spillDirectory;
+            this.withRelationshipIds = withRelationshipIds;
+            this.relationshipOffsets = withRelationshipIds ? new int[16] : null;
+            this.relationshipIds = withRelationshipIds ? new long[16] : null;
+        }
+
+        /**
+         * Append the segment of {@code u}, the next node.
+         *
+         * @param scratch  Neighbour {@code v} of entry {@code i} as {@code (v << 32) | i}, sorted in place
+         * @param scratchIds  The relationship behind entry {@code i}
+         */
+        void segment(int u, long[] scratch, long[] scratchIds, int count)
+        {
+            Arrays.sort(scratch, 0, count);
+            targets.ensureLength(size + count);
+            for (int i = 0; i < count; i++)
+            {
+                int v = (int) (scratch[i] >>> 32);
+                boolean first = i == 0 || v != (int) (scratch[i - 1] >>> 32);
+                if (first)
+                {
+                    targets.set(size++, v);
+                }
+                if (withRelationshipIds)
+                {
+                    if (first)
+                    {
+                        if (size + 1 > relationshipOffsets.length)
+                        {
+                            relationshipOffsets = Arrays.copyOf(relationshipOffsets, Math.max(relationshipOffsets.length * 2, size + 1));
+                        }
+                        relationshipOffsets[size] = relationshipOffsets[size - 1];
+                    }
+                    if (u < v)
+                    {
+                        if (relationshipCount == relationshipIds.length)
+                        {
+                            relationshipIds = Arrays.copyOf(relationshipIds, relationshipCount * 2);
+                        }
+                        relationshipIds[relationshipCount++] = scratchIds[(int) scratch[i]];
+                        relationshipOffsets[size]++;
+                    }
+                }
+            }
+            offsets[u + 1] = size;
+        }
+
+        GraphProjection build(long[] nodeIds, GraphScope scope)
+        {
+            targets.seal(size);
+
+            return new GraphProjection(nodeIds, offsets, targets, spillDirectory, scope,
+                withRelationshipIds ? Arrays.copyOf(relationshipOffsets, size + 1) : null,
+                withRelationshipIds ? Arrays.copyOf(relationshipIds, relationshipCount) : null);
+        }
+    }
+
+    /**
+     * Parse a procedure's {@code spillDirectory} argument.
+     *
+     * @return  The directory to pass to {@link #load(Transaction, Label, boolean, Path)}, or null if {@code directory} is empty
+     * @throws IllegalArgumentException  if {@code directory} is not an existing directory
+     */
+    public static Path spillDirectory(String directory)
+    {
+        if (directory == null || directory.isEmpty())
+        {
+            return null;
+        }
+        Path path = Paths.get(directory);
+        if (!Files.isDirectory(path))
+        {
+            throw new IllegalArgumentException("spillDirectory is not a directory: " + directory);
+        }
+        return path;
+    }
+
+    /**
+     * Build a projection from an edge list, without relationship ids. Node
+     * {@code i} gets Neo4j id {@code i}. Edges are undirected; duplicates and
+     * self loops are dropped.
+     *
+     * @param nodeCount  The number of nodes
+     * @param sources  One endpoint of every edge
+     * @param targets  The other endpoint of every edge
+     * @param edgeCount  The number of entries of {@code sources} and {@code targets} to use
+     */
+    public static GraphProjection fromEdges(int nodeCount, int[] sources, int[] targets, int edgeCount)
+    {
+        int[] offsets = new int[nodeCount + 1];
+        for (int e = 0; e < edgeCount; e++)
+        {
+            if (sources[e] != targets[e])
+            {
+                offsets[sources[e] + 1]++;
+                offsets[targets[e] + 1]++;
+            }
+        }
+        for (int u = 0; u < nodeCount; u++)
+        {
+            offsets[u + 1] += offsets[u];
+        }
+
+        int[] adjacency = new int[offsets[nodeCount]];
+        int[] cursors = Arrays.copyOf(offsets, nodeCount);
+        for (int e = 0; e < edgeCount; e++)
+        {
+            if (sources[e] != targets[e])
+            {
+                adjacency[cursors[sources[e]]++] = targets[e];
+                adjacency[cursors[targets[e]]++] = sources[e];
+            }
+        }
+
+        // Sort and deduplicate every segment, compacting in place
+        int size = 0;
+        for (int u = 0; u < nodeCount; u++)
+        {
+            int from = offsets[u];
+            int to = offsets[u + 1];
+            Arrays.sort(adjacency, from, to);
+            offsets[u] = size;
+            for (int i = from; i < to; i++)
+            {
+                if (i == from || adjacency[i] != adjacency[i - 1])
+                {
+                    adjacency[size++] = adjacency[i];
+                }
+            }
+        }
+        offsets[nodeCount] = size;
+
+        long[] nodeIds = new long[nodeCount];
+        for (int u = 0; u < nodeCount; u++)
+        {
+            nodeIds[u] = u;
+        }
+
+        return new GraphProjection(nodeIds, offsets, IntArray.wrap(Arrays.copyOf(adjacency, size)), null, null, null, null);
+    }
+
+    /**
+     * @return  What the projection was loaded from, or null if it was built from an edge list
+     */
+    public GraphScope scope()
+    {
+        return scope;
+    }
+
+    public int nodeCount()
+    {
+        return nodeIds.length;
+    }
+
+    /**
+     * @return  The number of undirected edges still present in the projection
+     */
+    public long edgeCount()
+    {
+        long flagged = 0;
+        for (long word : removed)
+        {
+            flagged += Long.bitCount(word);
+        }
+        return (slotCount() - flagged) / 2;
+    }
+
+    /**
+     * @return  The number of slots, i.e. twice the number of projected edges (including removed ones)
+     */
+    public int slotCount()
+    {
+        return offsets[nodeIds.length];
+    }
+
+    /**
+     * @return  A zeroed per-slot array stored alongside this projection's own, on the heap or mapped
+     */
+    IntArray newSlotArray(int length)
+    {
+        return spillDirectory == null ? IntArray.heap(length) : MappedIntArray.create(spillDirectory, length);
+    }
+
+    public long originalId(int u)
+    {
+        return nodeIds[u];
+    }
+
+    /**
+     * @return  The dense index of the Neo4j node {@code nodeId}, or -1 if it is not projected
+     */
+    public int toDense(long nodeId)
+    {
+        int u = Arrays.binarySearch(nodeIds, nodeId);
+        return u < 0 ? -1 : u;
+    }
+
+    /**
+     * @return  The number of edges of {@code u} that have not been removed
+     */
+    public int degree(int u)
+    {
+        return degrees[u];
+    }
+
+    /**
+     * @return  The first slot of {@code u}'s neighbour segment
+     */
+    public int start(int u)
+    {
+        return offsets[u];
+    }
+
+    /**
+     * @return  One past the last slot of {@code u}'s neighbour segment
+     */
+    public int end(int u)
+    {
+        return offsets[u + 1];
+    }
+
+    public int target(int slot)
+    {
+        return targets.get(slot);
+    }
+
+    /**
+     * @return  The slot of the reverse direction of the edge stored at {@code slot}
+     */
+    public int mirror(int slot)
+    {
+        return mirrors.get(slot);
+    }
+
+    public boolean isRemoved(int slot)
+    {
+        return (removed[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    /**
+     * @return  The slot of edge {@code u -> v} (removed or not), or -1 if the edge was never projected
+     */
+    public int findSlot(int u, int v)
+    {
+        int slot = targets.binarySearch(offsets[u], offsets[u + 1], v);
+        return slot < 0 ? -1 : slot;
+    }
+
+    /**
+     * Galloping search in {@code u}'s segment, see {@link SortedIntersection#seek}.
+     *
+     * @param from  A slot of {@code u}'s segment, or its end, whose predecessors all target less than {@code v}
+     * @return  The first slot from {@code from} on whose target is at least {@code v}, or the end of the segment
+     */
+    int seek(int u, int from, int v)
+    {
+        return SortedIntersection.seek(targets, from, offsets[u + 1], v);
+    }
+
+    /**
+     * Find the next common neighbour of {@code u} and {@code v}, removed edges
+     * included, see {@link SortedIntersection#next}.
+     *
+     * @param a  Where to start in {@code u}'s segment
+     * @param b  Where to start in {@code v}'s segment
+     * @return  Its slots in both segments, packed as {@code (long) uSlot << 32 | vSlot}, or -1 if there is none
+     */
+    long nextCommon(int u, int a, int v, int b)
+    {
+        return SortedIntersection.next(targets, a, offsets[u + 1], targets, b, offsets[v + 1]);
+    }
+
+    /**
+     * @return  The neighbours of {@code u} as a bitset over dense indices,
+     *          removed edges included, if {@code u} is a hub; otherwise null
+     */
+    long[] hubNeighbors(int u)
+    {
+        if (offsets[u + 1] - offsets[u] < hubDegree)
+        {
+            return null;
+        }
+        return hubNeighbors[Arrays.binarySearch(hubs, u)];
+    }
+
+    public boolean hasEdge(int u, int v)
+    {
+        int slot = findSlot(u, v);
+        return slot >= 0 && !isRemoved(slot);
+    }
+
+    /**
+     * Remove the undirected edge between {@code u} and {@code v}.
+     *
+     * @return  true if the edge was present
+     */
+    public boolean removeEdge(int u, int v)
+    {
+        int forward = findSlot(u, v);
+        if (forward < 0 || isRemoved(forward))
+        {
+            return false;
+        }
+
+        // Other threads may be flagging other slots of the same words
+        REMOVED.getAndBitwiseOr(removed, forward >>> 6, 1L << forward);
+        int backward = mirrors.get(forward);
+        REMOVED.getAndBitwiseOr(removed, backward >>> 6, 1L << backward);
+        degrees[u]--;
+        degrees[v]--;
+
+        return true;
+    }
+
+    public boolean hasRelationshipIds()
+    {
+        return relationshipIds != null;
+    }
+
+    /**
+     * @return  The ids of every relationship behind an edge removed since loading
+     * @throws IllegalStateException  if the projection was loaded without relationship ids
+     */
+    public long[] removedRelationshipIds()
+    {
+        if (relationshipIds == null)
+        {
+            throw new IllegalStateException("Projection was loaded without relationship ids");
+        }
+
+        int count = 0;
+        for (int slot = nextRemoved(0); slot >= 0; slot = nextRemoved(slot + 1))
+        {
+            count += relationshipOffsets[slot + 1] - relationshipOffsets[slot];
+        }
+
+        long[] ids = new long[count];
+        int i = 0;
+        for (int slot = nextRemoved(0); slot >= 0; slot = nextRemoved(slot + 1))
+        {
+            for (int r = relationshipOffsets[slot]; r < relationshipOffsets[slot + 1]; r++)
+            {
+                ids[i++] = relationshipIds[r];
+            }
+        }
+
+        return ids;
+    }
+
+    /**
+     * @return  The first removed slot at or after {@code from}, or -1 if there is none
+     */
+    private int nextRemoved(int from)
+    {
+        int i = from >>> 6;
+        if (i >= removed.length)
+        {
+            return -1;
+        }
+        long word = removed[i] & (-1L << from);
+        while (word == 0)
+        {
+            if (++i == removed.length)
+            {
+                return -1;
+            }
+            word = removed[i];
+        }
+        return (i << 6) + Long.numberOfTrailingZeros(word);
+    }
+}
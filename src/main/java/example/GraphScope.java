@@ -0,0 +1,134 @@
+package example;
+
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.RelationshipType;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+
+/**
+ * Which part of the store a {@link GraphProjection} covers: the nodes carrying
+ * one label, and the relationships of the given types between them (all
+ * types if none are given).
+ * <p>
+ * Triangles are counted on the undirected graph, so the direction does not
+ * change which edges are projected; it only decides from which end
+ * relationships are read while loading. {@link Direction#BOTH} reads every
+ * relationship from both of its ends. {@link Direction#OUTGOING} and
+ * {@link Direction#INCOMING} read it once, at the cost of buffering the edges
+ * before they are sorted into place.
+ */
+public final class GraphScope {
+
+    private final Label label;
+    private final RelationshipType[] relationshipTypes;
+    private final Direction direction;
+    private final String key;
+
+    private GraphScope(Label label, RelationshipType[] relationshipTypes, Direction direction)
+    {
+        this.label = label;
+        this.relationshipTypes = relationshipTypes;
+        this.direction = direction;
+
+        TreeSet<String> names = new TreeSet<String>();
+        for (RelationshipType type : relationshipTypes)
+        {
+            names.add(type.name());
+        }
+        this.key = label.name() + names;
+    }
+
+    /**
+     * Every relationship between nodes carrying {@code label}.
+     */
+    public static GraphScope of(Label label)
+    {
+        return new GraphScope(label, new RelationshipType[0], Direction.BOTH);
+    }
+
+    /**
+     * Parse the scoping arguments of a procedure.
+     *
+     * @param label  The label of the projected nodes
+     * @param relationshipTypes  The relationship types to project, or an empty list for all
+     * @param direction  {@code OUTGOING}, {@code INCOMING} or {@code BOTH}, in any case
+     * @throws IllegalArgumentException  if the label is empty or the direction unknown
+     */
+    public static GraphScope of(String label, List<String> relationshipTypes, String direction)
+    {
+        if (label == null || label.isEmpty())
+        {
+            throw new IllegalArgumentException("label must not be empty");
+        }
+        Direction parsed;
+        try
+        {
+            parsed = Direction.valueOf(direction.toUpperCase(Locale.ROOT));
+        }
+        catch (IllegalArgumentException | NullPointerException e)
+        {
+            throw new IllegalArgumentException("direction must be OUTGOING, INCOMING or BOTH, got " + direction);
+        }
+
+        RelationshipType[] types = relationshipTypes == null ? new RelationshipType[0]
+            : relationshipTypes.stream().distinct().map(RelationshipType::withName).toArray(RelationshipType[]::new);
+
+        return new GraphScope(Label.label(label), types, parsed);
+    }
+
+    public Label label()
+    {
+        return label;
+    }
+
+    /**
+     * @return  The projected relationship types, empty for all of them
+     */
+    public RelationshipType[] relationshipTypes()
+    {
+        return relationshipTypes.clone();
+    }
+
+    public Direction direction()
+    {
+        return direction;
+    }
+
+    /**
+     * @return  Whether relationships of {@code type} are projected
+     */
+    public boolean includes(RelationshipType type)
+    {
+        if (relationshipTypes.length == 0)
+        {
+            return true;
+        }
+        for (RelationshipType included : relationshipTypes)
+        {
+            if (included.name().equals(type.name()))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return  A string that is equal for two scopes exactly when they project
+     *          the same graph. The direction is left out, as it does not
+     *          change the projection.
+     */
+    public String key()
+    {
+        return key;
+    }
+
+    @Override
+    public String toString()
+    {
+        return key + " " + direction;
+    }
+}
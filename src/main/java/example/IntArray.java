@@ -0,0 +1,136 @@
+package example;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * A fixed-length array of ints indexed by slot, either on the heap or in a
+ * memory-mapped file (see {@link MappedIntArray}). The O(m) arrays of a
+ * projection and of the counts computed over it are allocated through
+ * {@link GraphProjection#newSlotArray(int)}, so they all live wherever the
+ * projection's adjacency lives.
+ */
+abstract class IntArray {
+
+    abstract int get(int index);
+
+    abstract void set(int index, int value);
+
+    abstract void add(int index, int delta);
+
+    /**
+     * Like {@link #add(int, int)}, but safe against concurrent updates of the same index.
+     */
+    abstract void addAtomic(int index, int delta);
+
+    /**
+     * Make {@code [0, length)} writable, growing if needed. Existing values are kept.
+     */
+    abstract void ensureLength(int length);
+
+    /**
+     * Called once all values have been written; the array cannot grow
+     * afterwards. A heap array also drops its slack beyond {@code length}.
+     */
+    abstract void seal(int length);
+
+    /**
+     * Binary search for {@code key} in the ascending range {@code [from, to)}.
+     *
+     * @return  The index of {@code key}, or a negative value if it is absent
+     */
+    int binarySearch(int from, int to, int key)
+    {
+        int low = from;
+        int high = to - 1;
+        while (low <= high)
+        {
+            int middle = (low + high) >>> 1;
+            int value = get(middle);
+            if (value < key)
+            {
+                low = middle + 1;
+            }
+            else if (value > key)
+            {
+                high = middle - 1;
+            }
+            else
+            {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    static IntArray heap(int length)
+    {
+        return new Heap(new int[length]);
+    }
+
+    static IntArray wrap(int[] values)
+    {
+        return new Heap(values);
+    }
+
+    static final class Heap extends IntArray {
+
+        private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(int[].class);
+
+        private int[] values;
+
+        private Heap(int[] values)
+        {
+            this.values = values;
+        }
+
+        @Override
+        int get(int index)
+        {
+            return values[index];
+        }
+
+        @Override
+        void set(int index, int value)
+        {
+            values[index] = value;
+        }
+
+        @Override
+        void add(int index, int delta)
+        {
+            values[index] += delta;
+        }
+
+        @Override
+        void addAtomic(int index, int delta)
+        {
+            VALUES.getAndAdd(values, index, delta);
+        }
+
+        @Override
+        void ensureLength(int length)
+        {
+            if (length > values.length)
+            {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, length));
+            }
+        }
+
+        @Override
+        void seal(int length)
+        {
+            if (length != values.length)
+            {
+                values = Arrays.copyOf(values, length);
+            }
+        }
+
+        @Override
+        int binarySearch(int from, int to, int key)
+        {
+            return Arrays.binarySearch(values, from, to, key);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package example;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * An {@link IntArray} backed by a temporary memory-mapped file, so its values
+ * live in the OS page cache instead of the Java heap and are paged in and out
+ * as they are scanned.
+ * <p>
+ * A single mapping is limited to 2 GiB, so the array is mapped as a sequence
+ * of 64 MiB pages. The file is opened with
+ * {@link StandardOpenOption#DELETE_ON_CLOSE} and the channel is closed by
+ * {@link #seal(int)}; the mappings stay valid until they are garbage
+ * collected, and the file disappears with them.
+ */
+final class MappedIntArray extends IntArray {
+
+    private static final int PAGE_SHIFT = 24;
+    private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+    private static final VarHandle VALUES = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    private FileChannel channel;
+    private ByteBuffer[] pages = new ByteBuffer[0];
+
+    private MappedIntArray(FileChannel channel)
+    {
+        this.channel = channel;
+    }
+
+    /**
+     * Open an empty, growable array in a new file under {@code directory}.
+     */
+    static MappedIntArray open(Path directory)
+    {
+        try
+        {
+            Path file = Files.createTempFile(directory, "projection-", ".ints");
+            return new MappedIntArray(FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE));
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Cannot create a mapped array in " + directory, e);
+        }
+    }
+
+    /**
+     * @return  A sealed array of {@code length} zeros in a new file under {@code directory}
+     */
+    static MappedIntArray create(Path directory, int length)
+    {
+        MappedIntArray array = open(directory);
+        array.ensureLength(length);
+        array.seal(length);
+        return array;
+    }
+
+    @Override
+    int get(int index)
+    {
+        return pages[index >>> PAGE_SHIFT].getInt((index & PAGE_MASK) << 2);
+    }
+
+    @Override
+    void set(int index, int value)
+    {
+        pages[index >>> PAGE_SHIFT].putInt((index & PAGE_MASK) << 2, value);
+    }
+
+    @Override
+    void add(int index, int delta)
+    {
+        ByteBuffer page = pages[index >>> PAGE_SHIFT];
+        int offset = (index & PAGE_MASK) << 2;
+        page.putInt(offset, page.getInt(offset) + delta);
+    }
+
+    @Override
+    void addAtomic(int index, int delta)
+    {
+        // Pages are mapped at page-aligned addresses, so every int is aligned
+        VALUES.getAndAdd(pages[index >>> PAGE_SHIFT], (index & PAGE_MASK) << 2, delta);
+    }
+
+    @Override
+    void ensureLength(int length)
+    {
+        int needed = (int) (((long) length + PAGE_MASK) >>> PAGE_SHIFT);
+        if (needed <= pages.length)
+        {
+            return;
+        }
+        if (channel == null)
+        {
+            throw new IllegalStateException("Mapped array is sealed");
+        }
+
+        int mapped = pages.length;
+        pages = Arrays.copyOf(pages, needed);
+        try
+        {
+            // Mapping past the end grows the (sparse) file, zero filled
+            for (int page = mapped; page < needed; page++)
+            {
+                long bytes = 4L << PAGE_SHIFT;
+                pages[page] = channel.map(FileChannel.MapMode.READ_WRITE, page * bytes, bytes).order(ByteOrder.nativeOrder());
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Cannot map " + length + " ints", e);
+        }
+    }
+
+    @Override
+    void seal(int length)
+    {
+        ensureLength(length);
+        try
+        {
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        channel = null;
+    }
+}
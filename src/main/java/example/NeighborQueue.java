@@ -0,0 +1,349 @@
+package example;
+
+import java.util.Arrays;
+
+/**
+ * The neighbour selection structures Best Adaptation needs for one vertex
+ * (the owner) while it deletes the owner's edges.
+ * <ul>
+ *     <li>An indexed max-heap over the owner's neighbours, keyed by their
+ *     vertex triangle count, answers "which neighbour has the most
+ *     triangles".</li>
+ *     <li>A bucket queue over the support of the owner's edges, with a Fenwick
+ *     tree over the non-empty buckets, answers "which edge has the support
+ *     closest to a target value".</li>
+ * </ul>
+ * Both answer in O(log d) and are kept current through
+ * {@link TriangleCounter.RemovalListener} as the owner's edges are removed.
+ * Ties go to the neighbour with the lowest index, the same neighbour a scan of
+ * the sorted neighbour segment would pick.
+ * <p>
+ * Only removals of edges incident to the owner are tracked; other removals
+ * can change the counts of the owner's neighbours without the heap noticing.
+ * <p>
+ * One queue can be {@link #reset(int) reset} to serve owner after owner. Its
+ * arrays only grow, so once it has seen the largest degree it no longer
+ * allocates.
+ */
+public class NeighborQueue implements TriangleCounter.RemovalListener {
+
+    private final GraphProjection graph;
+    private final int[] vertexTriangles;
+    private final EdgeSupport edgeTriangles;
+    private int owner;
+    private int base;
+    private int size;
+
+    private int[] heap = new int[0];
+    private int[] positions = new int[0];
+    private int heapSize;
+
+    // Only the first bucketCount buckets and fenwickLength entries belong to the current owner
+    private int[] fenwick = new int[0];
+    private int fenwickLength;
+    private int[] bucketOf = new int[0];
+    private int[][] buckets = new int[0][];
+    private int[] bucketSizes = new int[0];
+    private int bucketCount;
+
+    public NeighborQueue(TriangleCounter counter, GraphProjection graph, int owner)
+    {
+        this.graph = graph;
+        this.vertexTriangles = counter.vertexTriangles();
+        this.edgeTriangles = counter.edgeTriangles();
+        reset(owner);
+    }
+
+    /**
+     * Start over with the current edges of {@code owner}, reusing the arrays
+     * of the previous owner.
+     */
+    public void reset(int owner)
+    {
+        this.owner = owner;
+        this.base = graph.start(owner);
+        this.size = graph.end(owner) - base;
+        if (size > heap.length)
+        {
+            int capacity = Math.max(size, heap.length * 2);
+            heap = new int[capacity];
+            positions = new int[capacity];
+            bucketOf = new int[capacity];
+        }
+        Arrays.fill(positions, 0, size, -1);
+        Arrays.fill(bucketOf, 0, size, -1);
+        heapSize = 0;
+
+        int maxSupport = 0;
+        for (int i = 0; i < size; i++)
+        {
+            if (!graph.isRemoved(base + i))
+            {
+                maxSupport = Math.max(maxSupport, edgeTriangles.get(base + i));
+            }
+        }
+        bucketCount = maxSupport + 1;
+        fenwickLength = maxSupport + 2;
+        if (fenwickLength > fenwick.length)
+        {
+            int capacity = Math.max(fenwickLength, fenwick.length * 2);
+            fenwick = new int[capacity];
+            buckets = Arrays.copyOf(buckets, capacity - 1);
+            bucketSizes = new int[capacity - 1];
+        }
+        Arrays.fill(fenwick, 0, fenwickLength, 0);
+        Arrays.fill(bucketSizes, 0, bucketCount, 0);
+
+        for (int i = 0; i < size; i++)
+        {
+            if (graph.isRemoved(base + i))
+            {
+                continue;
+            }
+            heap[heapSize] = i;
+            positions[i] = heapSize++;
+            moveToBucket(i, edgeTriangles.get(base + i));
+        }
+        for (int p = heapSize / 2 - 1; p >= 0; p--)
+        {
+            siftDown(p);
+        }
+    }
+
+    public boolean isEmpty()
+    {
+        return heapSize == 0;
+    }
+
+    /**
+     * @return  The neighbour with the most triangles, or -1 if the owner has no edges left
+     */
+    public int maxNeighbor()
+    {
+        return heapSize == 0 ? -1 : graph.target(base + heap[0]);
+    }
+
+    /**
+     * @return  The neighbour whose edge to the owner has support closest to {@code target},
+     *          or -1 if the owner has no edges left
+     */
+    public int closestSupport(int target)
+    {
+        int value = Math.max(0, Math.min(target, bucketCount - 1));
+        int below = predecessor(value);
+        int above = successor(value);
+
+        if (below < 0 && above < 0)
+        {
+            return -1;
+        }
+        if (below < 0 || above < 0 || below == above)
+        {
+            return graph.target(base + peekBucket(below < 0 ? above : below));
+        }
+
+        int lower = peekBucket(below);
+        int upper = peekBucket(above);
+        int lowerDiff = target - below;
+        int upperDiff = above - target;
+        boolean pickLower = lowerDiff < upperDiff || (lowerDiff == upperDiff && lower < upper);
+
+        return graph.target(base + (pickLower ? lower : upper));
+    }
+
+    /**
+     * Forget the edge from the owner to {@code neighbor}. Call this before the
+     * edge is removed from the {@link TriangleCounter}.
+     */
+    public void remove(int neighbor)
+    {
+        int slot = graph.findSlot(owner, neighbor);
+        if (slot < 0 || positions[slot - base] < 0)
+        {
+            return;
+        }
+        int i = slot - base;
+
+        int p = positions[i];
+        positions[i] = -1;
+        heapSize--;
+        if (p < heapSize)
+        {
+            int moved = heap[heapSize];
+            heap[p] = moved;
+            positions[moved] = p;
+            siftUp(p);
+            siftDown(positions[moved]);
+        }
+
+        add(bucketOf[i], -1);
+        bucketOf[i] = -1;
+    }
+
+    @Override
+    public void triangleRemoved(int w, int uw, int vw)
+    {
+        lostTriangle(uw);
+        lostTriangle(vw);
+    }
+
+    private void lostTriangle(int slot)
+    {
+        int i = slot - base;
+        if (i < 0 || i >= size || positions[i] < 0)
+        {
+            return;
+        }
+
+        // The neighbour lost a triangle and so did the owner's edge to it
+        siftDown(positions[i]);
+        add(bucketOf[i], -1);
+        moveToBucket(i, bucketOf[i] - 1);
+    }
+
+    private boolean before(int i, int j)
+    {
+        int ti = vertexTriangles[graph.target(base + i)];
+        int tj = vertexTriangles[graph.target(base + j)];
+        return ti > tj || (ti == tj && i < j);
+    }
+
+    private void siftUp(int p)
+    {
+        int i = heap[p];
+        while (p > 0)
+        {
+            int parent = (p - 1) / 2;
+            if (!before(i, heap[parent]))
+            {
+                break;
+            }
+            heap[p] = heap[parent];
+            positions[heap[p]] = p;
+            p = parent;
+        }
+        heap[p] = i;
+        positions[i] = p;
+    }
+
+    private void siftDown(int p)
+    {
+        int i = heap[p];
+        while (2 * p + 1 < heapSize)
+        {
+            int child = 2 * p + 1;
+            if (child + 1 < heapSize && before(heap[child + 1], heap[child]))
+            {
+                child++;
+            }
+            if (!before(heap[child], i))
+            {
+                break;
+            }
+            heap[p] = heap[child];
+            positions[heap[p]] = p;
+            p = child;
+        }
+        heap[p] = i;
+        positions[i] = p;
+    }
+
+    private void moveToBucket(int i, int bucket)
+    {
+        bucketOf[i] = bucket;
+        add(bucket, 1);
+
+        // Buckets are min-heaps of local indices with lazy deletion: entries
+        // whose support has since moved on are dropped when they reach the top.
+        if (buckets[bucket] == null)
+        {
+            buckets[bucket] = new int[4];
+        }
+        else if (bucketSizes[bucket] == buckets[bucket].length)
+        {
+            buckets[bucket] = Arrays.copyOf(buckets[bucket], bucketSizes[bucket] * 2);
+        }
+        int[] entries = buckets[bucket];
+        int p = bucketSizes[bucket]++;
+        while (p > 0 && entries[(p - 1) / 2] > i)
+        {
+            entries[p] = entries[(p - 1) / 2];
+            p = (p - 1) / 2;
+        }
+        entries[p] = i;
+    }
+
+    private int peekBucket(int bucket)
+    {
+        int[] entries = buckets[bucket];
+        while (bucketOf[entries[0]] != bucket)
+        {
+            int last = entries[--bucketSizes[bucket]];
+            int p = 0;
+            while (2 * p + 1 < bucketSizes[bucket])
+            {
+                int child = 2 * p + 1;
+                if (child + 1 < bucketSizes[bucket] && entries[child + 1] < entries[child])
+                {
+                    child++;
+                }
+                if (entries[child] >= last)
+                {
+                    break;
+                }
+                entries[p] = entries[child];
+                p = child;
+            }
+            entries[p] = last;
+        }
+
+        return entries[0];
+    }
+
+    private void add(int bucket, int delta)
+    {
+        for (int i = bucket + 1; i < fenwickLength; i += i & -i)
+        {
+            fenwick[i] += delta;
+        }
+    }
+
+    private int prefix(int bucket)
+    {
+        int sum = 0;
+        for (int i = bucket + 1; i > 0; i -= i & -i)
+        {
+            sum += fenwick[i];
+        }
+        return sum;
+    }
+
+    /**
+     * @return  The smallest bucket whose prefix count reaches {@code rank}
+     */
+    private int select(int rank)
+    {
+        int position = 0;
+        for (int step = Integer.highestOneBit(fenwickLength); step > 0; step >>= 1)
+        {
+            if (position + step < fenwickLength && fenwick[position + step] < rank)
+            {
+                position += step;
+                rank -= fenwick[position];
+            }
+        }
+        return position;
+    }
+
+    private int predecessor(int bucket)
+    {
+        int rank = prefix(bucket);
+        return rank == 0 ? -1 : select(rank);
+    }
+
+    private int successor(int bucket)
+    {
+        int rank = bucket == 0 ? 0 : prefix(bucket - 1);
+        return rank == prefix(bucketCount - 1) ? -1 : select(rank + 1);
+    }
+}
@@ -0,0 +1,92 @@
+package example;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Emits one result record per projected node straight from a primitive count
+ * array. Records are created only as the consumer pulls them, so a procedure
+ * can return its stream immediately without first materialising every row.
+ *
+ * @param <T>  The procedure's output record type
+ */
+public class NodeCountSpliterator<T> implements Spliterator<T> {
+
+    /**
+     * Builds an output record from a Neo4j node id and its count.
+     */
+    public interface RecordFactory<T> {
+        T create(long nodeId, long count);
+    }
+
+    private final GraphProjection graph;
+    private final int[] counts;
+    private final RecordFactory<T> factory;
+    private int next;
+    private final int end;
+
+    private NodeCountSpliterator(GraphProjection graph, int[] counts, RecordFactory<T> factory, int next, int end)
+    {
+        this.graph = graph;
+        this.counts = counts;
+        this.factory = factory;
+        this.next = next;
+        this.end = end;
+    }
+
+    /**
+     * @return  A sequential stream of one record per node of {@code graph}, in dense index order
+     */
+    public static <T> Stream<T> stream(GraphProjection graph, int[] counts, RecordFactory<T> factory)
+    {
+        return StreamSupport.stream(new NodeCountSpliterator<T>(graph, counts, factory, 0, counts.length), false);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action)
+    {
+        if (next >= end)
+        {
+            return false;
+        }
+        action.accept(factory.create(graph.originalId(next), counts[next]));
+        next++;
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action)
+    {
+        for (; next < end; next++)
+        {
+            action.accept(factory.create(graph.originalId(next), counts[next]));
+        }
+    }
+
+    @Override
+    public Spliterator<T> trySplit()
+    {
+        int middle = (next + end) >>> 1;
+        if (middle <= next)
+        {
+            return null;
+        }
+        Spliterator<T> prefix = new NodeCountSpliterator<T>(graph, counts, factory, next, middle);
+        next = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize()
+    {
+        return end - next;
+    }
+
+    @Override
+    public int characteristics()
+    {
+        return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+}
@@ -0,0 +1,163 @@
+package example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The optional settings of a procedure call, passed as a single map after the
+ * procedure's own arguments, e.g.
+ * {@code {concurrency: 4, label: 'User', relationshipTypes: ['FOLLOWS']}}.
+ * <p>
+ * Missing keys take their defaults. Keys the procedure does not take and
+ * values of the wrong type fail the call, so a misspelt setting is reported
+ * instead of silently ignored.
+ */
+public final class ProcedureConfig {
+
+    public static final String CONCURRENCY = "concurrency";
+    public static final String BATCH_SIZE = "batchSize";
+    public static final String SPILL_DIRECTORY = "spillDirectory";
+    public static final String TIMEOUT_MS = "timeoutMs";
+    public static final String LABEL = "label";
+    public static final String RELATIONSHIP_TYPES = "relationshipTypes";
+    public static final String DIRECTION = "direction";
+    public static final String PARALLEL_TRUNCATION = "parallelTruncation";
+    public static final String SEED = "seed";
+    public static final String CONFIDENCE = "confidence";
+
+    private static final Map<String, Object> DEFAULTS = Map.of(
+        CONCURRENCY, 1L,
+        BATCH_SIZE, 10000L,
+        SPILL_DIRECTORY, "",
+        TIMEOUT_MS, 0L,
+        LABEL, "Person",
+        RELATIONSHIP_TYPES, List.of(),
+        DIRECTION, "BOTH",
+        PARALLEL_TRUNCATION, false,
+        SEED, 42L,
+        CONFIDENCE, 0.95);
+
+    private final Map<String, Object> values;
+
+    private ProcedureConfig(Map<String, Object> values)
+    {
+        this.values = values;
+    }
+
+    /**
+     * @param config  The map passed to the procedure, or null
+     * @param keys  The keys the procedure takes besides {@link #LABEL},
+     *              {@link #RELATIONSHIP_TYPES} and {@link #DIRECTION}, which
+     *              every procedure takes
+     * @throws IllegalArgumentException  if {@code config} has any other key
+     */
+    public static ProcedureConfig of(Map<String, Object> config, String... keys)
+    {
+        Map<String, Object> values = config == null ? Map.of() : config;
+        Set<String> allowed = new TreeSet<String>(Arrays.asList(keys));
+        allowed.addAll(List.of(LABEL, RELATIONSHIP_TYPES, DIRECTION));
+        for (String key : values.keySet())
+        {
+            if (!allowed.contains(key))
+            {
+                throw new IllegalArgumentException("Unknown config key '" + key + "', expected one of " + allowed);
+            }
+        }
+        return new ProcedureConfig(values);
+    }
+
+    /**
+     * @return  The number of threads to count (and truncate in parallel) with, 1 by default
+     */
+    public int concurrency()
+    {
+        return number(CONCURRENCY).intValue();
+    }
+
+    /**
+     * @return  The number of relationship deletions committed per transaction, 10000 by default
+     */
+    public int batchSize()
+    {
+        return number(BATCH_SIZE).intValue();
+    }
+
+    /**
+     * @return  A directory to memory-map the projection into, or "" (the default) to keep it on the heap
+     */
+    public String spillDirectory()
+    {
+        return get(SPILL_DIRECTORY, String.class, "a string");
+    }
+
+    /**
+     * @return  How long the call may run before it is terminated, or 0 (the default) for no limit
+     */
+    public Number timeoutMs()
+    {
+        return number(TIMEOUT_MS);
+    }
+
+    /**
+     * @return  The projected graph: {@code label} ({@code Person} by default),
+     *          {@code relationshipTypes} ([] for all, the default) and
+     *          {@code direction} ({@code BOTH} by default), see {@link GraphScope}
+     */
+    public GraphScope scope()
+    {
+        List<?> types = get(RELATIONSHIP_TYPES, List.class, "a list of strings");
+        List<String> names = new ArrayList<String>(types.size());
+        for (Object type : types)
+        {
+            if (!(type instanceof String))
+            {
+                throw new IllegalArgumentException("config." + RELATIONSHIP_TYPES + " must be a list of strings, got " + types);
+            }
+            names.add((String) type);
+        }
+        return GraphScope.of(get(LABEL, String.class, "a string"), names, get(DIRECTION, String.class, "a string"));
+    }
+
+    /**
+     * @return  Whether to bound independent vertices concurrently on {@link #concurrency()} threads, false by default
+     */
+    public boolean parallelTruncation()
+    {
+        return get(PARALLEL_TRUNCATION, Boolean.class, "a boolean");
+    }
+
+    /**
+     * @return  The seed of a random choice the procedure makes, 42 by default
+     */
+    public long seed()
+    {
+        return number(SEED).longValue();
+    }
+
+    /**
+     * @return  The coverage of a confidence interval, 0.95 by default
+     */
+    public double confidence()
+    {
+        return number(CONFIDENCE).doubleValue();
+    }
+
+    private Number number(String key)
+    {
+        return get(key, Number.class, "a number");
+    }
+
+    private <T> T get(String key, Class<T> type, String description)
+    {
+        Object value = values.containsKey(key) ? values.get(key) : DEFAULTS.get(key);
+        if (!type.isInstance(value))
+        {
+            throw new IllegalArgumentException("config." + key + " must be " + description + ", got " + value);
+        }
+        return type.cast(value);
+    }
+}
@@ -0,0 +1,561 @@
+package example;
+
+import org.neo4j.dbms.api.DatabaseManagementService;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.event.DatabaseEventContext;
+import org.neo4j.graphdb.event.DatabaseEventListenerAdapter;
+import org.neo4j.graphdb.event.LabelEntry;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventListenerAdapter;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-database cache of projections and their base triangle counts, one per
+ * {@link GraphScope}, so repeated queries over an unchanged graph skip
+ * loading and counting. At most {@link #MAX_SCOPES} scopes are kept per
+ * database; the least recently used is dropped to make room.
+ * <p>
+ * A database is identified by its DBMS and its name, as several DBMSs in one
+ * JVM (or a database dropped and created again under its old name) may
+ * share a name. The first use for a database registers a transaction event
+ * listener and a database event listener with its DBMS; when the database
+ * stops, both are unregistered and its cache is dropped.
+ * <p>
+ * The transaction event listener invalidates the cache. A committed transaction that creates or deletes a relationship of
+ * a projected type between two projected nodes, deletes a projected node, or
+ * adds or removes a cached label drops every entry of that database; the
+ * next query loads and counts again. A load is only cached if no commit
+ * that creates or deletes a relationship, deletes a node or changes a label
+ * overlapped it, whatever scope that commit touched: a load may start after
+ * such a commit has been checked against the cache but before it is
+ * visible.
+ * <p>
+ * The cache also keeps checkpoints of truncations that were terminated part
+ * way, one per scope and {@code lambda} and at most {@link #MAX_CHECKPOINTS}
+ * per database, so that the next run on the same scope with the same
+ * {@code lambda} resumes where the last one stopped. Checkpoints are dropped
+ * together with the projections.
+ * <p>
+ * If the listener cannot be registered (the database is not a
+ * {@link GraphDatabaseAPI}), nothing is cached and every call loads afresh.
+ */
+public class ProjectionCache {
+
+    static final int MAX_SCOPES = 4;
+    static final int MAX_CHECKPOINTS = 4;
+
+    private static final Map<Key, ProjectionCache> CACHES = new ConcurrentHashMap<Key, ProjectionCache>();
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    private static final class Entry {
+        final GraphProjection graph;
+        final TriangleCounter counter;
+
+        Entry(GraphProjection graph, TriangleCounter counter)
+        {
+            this.graph = graph;
+            this.counter = counter;
+        }
+    }
+
+    /**
+     * Counts part way through Best Adaptation, and the first vertex it had
+     * not bounded yet.
+     */
+    static final class Checkpoint {
+        final TriangleCounter counter;
+        final int next;
+
+        Checkpoint(TriangleCounter counter, int next)
+        {
+            this.counter = counter;
+            this.next = next;
+        }
+    }
+
+    /**
+     * A database of one DBMS.
+     */
+    static final class Key {
+        final DatabaseManagementService dbms;
+        final String name;
+
+        Key(DatabaseManagementService dbms, String name)
+        {
+            this.dbms = dbms;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            return other instanceof Key && ((Key) other).dbms == dbms && ((Key) other).name.equals(name);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return System.identityHashCode(dbms) * 31 + name.hashCode();
+        }
+    }
+
+    // Both guarded by this; entries in access order, so the eldest is the least recently used
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ProjectionCache.Entry> eldest)
+        {
+            return size() > MAX_SCOPES;
+        }
+    };
+    private final Map<String, Checkpoint> checkpoints = new LinkedHashMap<String, Checkpoint>()
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Checkpoint> eldest)
+        {
+            return size() > MAX_CHECKPOINTS;
+        }
+    };
+    // Commits between beforeCommit and afterCommit that may change some projection
+    private final AtomicInteger committing = new AtomicInteger();
+    private long generation;
+
+    private final Key key;
+    private final Invalidator invalidator = new Invalidator();
+    private final Shutdown shutdown = new Shutdown();
+
+    private ProjectionCache(Key key)
+    {
+        this.key = key;
+    }
+
+    /**
+     * The counts of the {@code scope} projection of {@code db}, shared with
+     * other callers: neither the counts nor the projection may be modified.
+     */
+    public static TriangleCounter baseCounts(GraphDatabaseService db, GraphScope scope, int concurrency)
+    {
+        return baseCounts(db, scope, concurrency, Termination.NONE);
+    }
+
+    /**
+     * Like {@link #baseCounts(GraphDatabaseService, GraphScope, int)}, stopping
+     * the load and count on a cache miss when {@code termination} says so.
+     */
+    public static TriangleCounter baseCounts(GraphDatabaseService db, GraphScope scope, int concurrency, Termination termination)
+    {
+        ProjectionCache cache = of(db);
+        if (cache == null)
+        {
+            return TriangleCounter.count(Load(db, scope, false, termination), concurrency, termination);
+        }
+        return cache.entry(db, scope, false, concurrency, null, termination).counter;
+    }
+
+    /**
+     * A private copy of the counts of the {@code scope} projection of
+     * {@code db}, free to be truncated.
+     *
+     * @param withRelationshipIds  Whether the projection must support {@link GraphProjection#removedRelationshipIds()}
+     */
+    public static TriangleCounter counts(GraphDatabaseService db, GraphScope scope, boolean withRelationshipIds, int concurrency)
+    {
+        return counts(db, scope, withRelationshipIds, concurrency, null, Termination.NONE);
+    }
+
+    /**
+     * Like {@link #counts(GraphDatabaseService, GraphScope, boolean, int)}, moving
+     * {@code stats} to {@link RunStats.Phase#COUNTING} between loading and
+     * counting on a cache miss and stopping the load and count when
+     * {@code termination} says so.
+     */
+    public static TriangleCounter counts(GraphDatabaseService db, GraphScope scope, boolean withRelationshipIds, int concurrency,
+                                         RunStats stats, Termination termination)
+    {
+        ProjectionCache cache = of(db);
+        if (cache == null)
+        {
+            GraphProjection graph = Load(db, scope, withRelationshipIds, termination);
+            if (stats != null)
+            {
+                stats.phase(RunStats.Phase.COUNTING);
+            }
+            return TriangleCounter.count(graph, concurrency, termination);
+        }
+        Entry entry = cache.entry(db, scope, withRelationshipIds, concurrency, stats, termination);
+        return entry.counter.copy(entry.graph.copy());
+    }
+
+    /**
+     * @return  A token to pass to {@link #checkpoint}, taken before the counts
+     *          to be checkpointed were obtained, or -1 if {@code db} cannot be cached
+     */
+    public static long generation(GraphDatabaseService db)
+    {
+        ProjectionCache cache = of(db);
+        if (cache == null)
+        {
+            return -1;
+        }
+        synchronized (cache)
+        {
+            return cache.generation;
+        }
+    }
+
+    /**
+     * Keep {@code counter}, truncated by {@code lambda} up to vertex
+     * {@code next}, for the next run with the same {@code lambda}. Nothing is
+     * kept if the graph may have changed since {@code generation} was taken.
+     * A newer checkpoint replaces an older one.
+     */
+    static void checkpoint(GraphDatabaseService db, GraphScope scope, int lambda, TriangleCounter counter, int next, long generation)
+    {
+        ProjectionCache cache = of(db);
+        if (cache == null || generation < 0)
+        {
+            return;
+        }
+        synchronized (cache)
+        {
+            if (cache.generation == generation)
+            {
+                cache.checkpoints.put(scope.key() + "/" + lambda, new Checkpoint(counter, next));
+            }
+        }
+    }
+
+    /**
+     * Take the checkpoint of the last terminated run with {@code lambda}, if
+     * there is one that fits. The caller becomes its only owner.
+     *
+     * @param withRelationshipIds  Whether the projection must support {@link GraphProjection#removedRelationshipIds()}
+     * @return  The checkpoint, or null to start over
+     */
+    static Checkpoint resume(GraphDatabaseService db, GraphScope scope, int lambda, boolean withRelationshipIds)
+    {
+        ProjectionCache cache = of(db);
+        if (cache == null)
+        {
+            return null;
+        }
+        String key = scope.key() + "/" + lambda;
+        // Taking it under the lock lets only one of two concurrent runs resume it
+        synchronized (cache)
+        {
+            Checkpoint checkpoint = cache.checkpoints.get(key);
+            if (checkpoint == null || (withRelationshipIds && !checkpoint.counter.graph().hasRelationshipIds()))
+            {
+                return null;
+            }
+            cache.checkpoints.remove(key);
+            return checkpoint;
+        }
+    }
+
+    /**
+     * @return  The number of lookups served from a cache since startup
+     */
+    public static long hits()
+    {
+        return HITS.get();
+    }
+
+    /**
+     * @return  The number of lookups that had to load and count since startup
+     */
+    public static long misses()
+    {
+        return MISSES.get();
+    }
+
+    /**
+     * Drop every cached projection of {@code db}.
+     */
+    public static void clear(GraphDatabaseService db)
+    {
+        Key key = key(db);
+        ProjectionCache cache = key == null ? null : CACHES.get(key);
+        if (cache != null)
+        {
+            cache.invalidate();
+        }
+    }
+
+    /**
+     * @return  The key of {@code db}, or null if it cannot be cached
+     */
+    static Key key(GraphDatabaseService db)
+    {
+        if (!(db instanceof GraphDatabaseAPI))
+        {
+            return null;
+        }
+        DatabaseManagementService dbms = ((GraphDatabaseAPI) db).getDependencyResolver()
+            .resolveDependency(DatabaseManagementService.class);
+        return new Key(dbms, db.databaseName());
+    }
+
+    private static ProjectionCache of(GraphDatabaseService db)
+    {
+        Key key = key(db);
+        if (key == null)
+        {
+            return null;
+        }
+        return CACHES.computeIfAbsent(key, k -> {
+            ProjectionCache cache = new ProjectionCache(k);
+            k.dbms.registerTransactionEventListener(k.name, cache.invalidator);
+            k.dbms.registerDatabaseEventListener(cache.shutdown);
+            return cache;
+        });
+    }
+
+    /**
+     * Forget this cache and unregister its listeners, once its database has stopped.
+     */
+    private void close()
+    {
+        if (!CACHES.remove(key, this))
+        {
+            return;
+        }
+        invalidate();
+        RunStats.forget(key);
+        try
+        {
+            key.dbms.unregisterTransactionEventListener(key.name, invalidator);
+            key.dbms.unregisterDatabaseEventListener(shutdown);
+        }
+        catch (RuntimeException e)
+        {
+            // The DBMS itself is shutting down and drops its listeners anyway
+        }
+    }
+
+    private Entry entry(GraphDatabaseService db, GraphScope scope, boolean withRelationshipIds, int concurrency,
+                        RunStats stats, Termination termination)
+    {
+        Entry entry;
+        long seen;
+        synchronized (this)
+        {
+            entry = entries.get(scope.key());
+            seen = generation;
+        }
+        if (entry != null && (entry.graph.hasRelationshipIds() || !withRelationshipIds))
+        {
+            HITS.incrementAndGet();
+            return entry;
+        }
+        MISSES.incrementAndGet();
+
+        GraphProjection graph = Load(db, scope, withRelationshipIds, termination);
+        if (stats != null)
+        {
+            stats.phase(RunStats.Phase.COUNTING);
+        }
+        entry = new Entry(graph, TriangleCounter.count(graph, concurrency, termination));
+
+        synchronized (this)
+        {
+            // A commit still in flight may have been checked before this load started and become visible after it read its part
+            if (generation == seen && committing.get() == 0)
+            {
+                entries.put(scope.key(), entry);
+            }
+        }
+        return entry;
+    }
+
+    private synchronized void invalidate()
+    {
+        generation++;
+        entries.clear();
+        checkpoints.clear();
+    }
+
+    private static GraphProjection Load(GraphDatabaseService db, GraphScope scope, boolean withRelationshipIds, Termination termination)
+    {
+        try (Transaction tx = db.beginTx())
+        {
+            return GraphProjection.load(tx, scope, withRelationshipIds, null, termination);
+        }
+    }
+
+    /**
+     * @return  Every cached and checkpointed projection
+     */
+    private synchronized List<GraphProjection> graphs()
+    {
+        List<GraphProjection> graphs = new ArrayList<GraphProjection>(entries.size() + checkpoints.size());
+        for (Entry entry : entries.values())
+        {
+            graphs.add(entry.graph);
+        }
+        for (Checkpoint checkpoint : checkpoints.values())
+        {
+            graphs.add(checkpoint.counter.graph());
+        }
+        return graphs;
+    }
+
+    /**
+     * Drops the cache when its database stops, so that a database started
+     * later under the same name does not find it.
+     */
+    private class Shutdown extends DatabaseEventListenerAdapter {
+
+        @Override
+        public void databaseShutdown(DatabaseEventContext event)
+        {
+            if (key.name.equals(event.getDatabaseName()))
+            {
+                close();
+            }
+        }
+
+        @Override
+        public void databasePanic(DatabaseEventContext event)
+        {
+            databaseShutdown(event);
+        }
+    }
+
+    /**
+     * Decides before commit, from node ids only, whether a transaction changes
+     * a cached projection, and invalidates once it has committed. Its state is
+     * null for a transaction that cannot change any projection, which leaves
+     * loads in progress alone, and otherwise whether it changes a cached one.
+     */
+    private class Invalidator extends TransactionEventListenerAdapter<Boolean> {
+
+        @Override
+        public Boolean beforeCommit(TransactionData data, Transaction transaction, GraphDatabaseService db)
+        {
+            if (!structural(data))
+            {
+                return null;
+            }
+            // Counted before looking at the cache, so a load that starts from here on is not cached either
+            committing.incrementAndGet();
+            List<GraphProjection> graphs = graphs();
+            for (GraphProjection graph : graphs)
+            {
+                if (changes(data, graph))
+                {
+                    return true;
+                }
+            }
+            for (LabelEntry labelEntry : data.assignedLabels())
+            {
+                if (cached(graphs, labelEntry.label().name()))
+                {
+                    return true;
+                }
+            }
+            for (LabelEntry labelEntry : data.removedLabels())
+            {
+                if (cached(graphs, labelEntry.label().name()))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean cached(List<GraphProjection> graphs, String label)
+        {
+            for (GraphProjection graph : graphs)
+            {
+                if (graph.scope().label().name().equals(label))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void afterCommit(TransactionData data, Boolean changed, GraphDatabaseService db)
+        {
+            if (changed == null)
+            {
+                return;
+            }
+            synchronized (ProjectionCache.this)
+            {
+                if (changed)
+                {
+                    invalidate();
+                }
+                else
+                {
+                    // Loads that overlapped the commit may have missed it
+                    generation++;
+                }
+                committing.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void afterRollback(TransactionData data, Boolean changed, GraphDatabaseService db)
+        {
+            if (changed != null)
+            {
+                committing.decrementAndGet();
+            }
+        }
+
+        private boolean structural(TransactionData data)
+        {
+            return data.createdRelationships().iterator().hasNext() || data.deletedRelationships().iterator().hasNext()
+                || data.deletedNodes().iterator().hasNext() || data.assignedLabels().iterator().hasNext()
+                || data.removedLabels().iterator().hasNext();
+        }
+
+        private boolean changes(TransactionData data, GraphProjection graph)
+        {
+            for (Relationship rel : data.createdRelationships())
+            {
+                if (projected(graph, rel))
+                {
+                    return true;
+                }
+            }
+            for (Relationship rel : data.deletedRelationships())
+            {
+                if (projected(graph, rel))
+                {
+                    return true;
+                }
+            }
+            for (Node node : data.deletedNodes())
+            {
+                if (graph.toDense(node.getId()) >= 0)
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean projected(GraphProjection graph, Relationship rel)
+        {
+            return graph.toDense(rel.getStartNodeId()) >= 0 && graph.toDense(rel.getEndNodeId()) >= 0
+                && graph.scope().includes(rel.getType());
+        }
+    }
+}
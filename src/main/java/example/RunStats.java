@@ -0,0 +1,301 @@
+package example;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.logging.Log;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Progress, timing and memory of one run of a secure counting procedure.
+ * <p>
+ * A run moves through the {@link Phase phases} in order, skipping those it
+ * does not need. Every phase change is logged with the time the previous
+ * phase took, and while Best Adaptation or the deletions run, progress is
+ * logged at most every {@link #LOG_INTERVAL_SECONDS} seconds. The latest run
+ * per database stays available through {@link #latest(GraphDatabaseService)}
+ * for {@code example.triangleCountStats}, including while it is running, and
+ * is dropped with the database's {@link ProjectionCache} when it stops.
+ * <p>
+ * Counters are written by the thread running the procedure and read
+ * without locking, so a snapshot of a running run may be slightly stale.
+ * Heap usage is sampled at phase changes and progress checks and covers the
+ * whole JVM, the database included.
+ */
+public class RunStats {
+
+    public enum Phase { PROJECTING, COUNTING, TRUNCATING, DELETING, DONE, FAILED }
+
+    static final long LOG_INTERVAL_SECONDS = 30;
+    private static final long LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(LOG_INTERVAL_SECONDS);
+
+    private static final Map<ProjectionCache.Key, RunStats> LATEST = new ConcurrentHashMap<ProjectionCache.Key, RunStats>();
+
+    private final String procedure;
+    private final Log log;
+    private final long startedAt;
+    private final long startNanos;
+
+    private final long[] phaseNanos = new long[Phase.values().length];
+    private volatile Phase phase = Phase.PROJECTING;
+    private long phaseStart;
+    private volatile long endNanos;
+    private long lastLog;
+
+    private volatile int nodeCount;
+    private volatile long edgeCount;
+    private volatile int verticesVisited;
+    private volatile int verticesTruncated;
+    private volatile long edgesDeleted;
+    private volatile long trianglesDestroyed;
+    private volatile long relationshipsDeleted;
+    private volatile long peakHeapBytes;
+    private volatile Integer resumedFrom;
+
+    private RunStats(String procedure, Log log)
+    {
+        this.procedure = procedure;
+        this.log = log;
+        this.startedAt = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+        this.phaseStart = startNanos;
+        this.lastLog = startNanos;
+        sampleHeap();
+    }
+
+    /**
+     * Start tracking a run of {@code procedure} on {@code db}, in the
+     * {@link Phase#PROJECTING} phase. It replaces the latest run on the
+     * database, told apart from databases of the same name in other DBMSs as
+     * in {@link ProjectionCache}.
+     */
+    public static RunStats start(GraphDatabaseService db, String procedure, Log log)
+    {
+        RunStats stats = new RunStats(procedure, log);
+        LATEST.put(key(db), stats);
+        log.info("%s: projecting", procedure);
+        return stats;
+    }
+
+    /**
+     * @return  The latest run on {@code db}, finished or not, or null if there was none
+     */
+    public static RunStats latest(GraphDatabaseService db)
+    {
+        return LATEST.get(key(db));
+    }
+
+    private static ProjectionCache.Key key(GraphDatabaseService db)
+    {
+        ProjectionCache.Key key = ProjectionCache.key(db);
+        // Without its DBMS, a database can only be told apart by name
+        return key != null ? key : new ProjectionCache.Key(null, db.databaseName());
+    }
+
+    /**
+     * Drop the latest run of a database that has stopped.
+     */
+    static void forget(ProjectionCache.Key key)
+    {
+        LATEST.remove(key);
+    }
+
+    /**
+     * End the current phase and start {@code next}.
+     */
+    public synchronized void phase(Phase next)
+    {
+        long now = System.nanoTime();
+        phaseNanos[phase.ordinal()] += now - phaseStart;
+        log.info("%s: %s took %d ms, now %s", procedure, phase.name().toLowerCase(),
+            TimeUnit.NANOSECONDS.toMillis(now - phaseStart), next.name().toLowerCase());
+        phaseStart = now;
+        phase = next;
+        sampleHeap();
+    }
+
+    /**
+     * The run continues from a checkpoint whose first unbounded vertex is
+     * {@code next}, skipping projecting and counting.
+     */
+    public void resumed(int next)
+    {
+        resumedFrom = next;
+        log.info("%s: resuming from checkpoint at vertex %d", procedure, next);
+    }
+
+    public void projected(GraphProjection graph)
+    {
+        nodeCount = graph.nodeCount();
+        edgeCount = graph.edgeCount();
+    }
+
+    /**
+     * Best Adaptation is done with {@code visited} vertices: those before
+     * the one it has reached, or in a parallel run, those that are not
+     * pending any more.
+     */
+    void visited(int visited)
+    {
+        verticesVisited = visited;
+        // Checking the clock on every vertex would cost more than the visit itself
+        if ((visited & 4095) == 0)
+        {
+            progress();
+        }
+    }
+
+    /**
+     * Best Adaptation deleted an edge, destroying {@code triangles} triangles.
+     */
+    void edgeDeleted(int triangles)
+    {
+        edgesDeleted++;
+        trianglesDestroyed += triangles;
+    }
+
+    /**
+     * Best Adaptation finished bounding a vertex that was over budget.
+     */
+    void truncated()
+    {
+        verticesTruncated++;
+        progress();
+    }
+
+    /**
+     * A round of parallel Best Adaptation bounded {@code vertices} vertices,
+     * deleting {@code edges} edges and destroying {@code triangles} triangles.
+     */
+    void bounded(int vertices, long edges, long triangles)
+    {
+        verticesTruncated += vertices;
+        edgesDeleted += edges;
+        trianglesDestroyed += triangles;
+        progress();
+    }
+
+    void relationshipsDeleted(int count)
+    {
+        relationshipsDeleted += count;
+        progress();
+    }
+
+    public synchronized void finish()
+    {
+        phase(Phase.DONE);
+        endNanos = System.nanoTime();
+        log.info("%s: done in %d ms, %d edges deleted, peak heap %d MB", procedure,
+            TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos), edgesDeleted, peakHeapBytes >> 20);
+    }
+
+    public synchronized void fail(Throwable cause)
+    {
+        phaseNanos[phase.ordinal()] += System.nanoTime() - phaseStart;
+        log.warn("%s: failed while %s: %s", procedure, phase.name().toLowerCase(), cause);
+        phase = Phase.FAILED;
+        endNanos = System.nanoTime();
+    }
+
+    private void progress()
+    {
+        long now = System.nanoTime();
+        if (now - lastLog < LOG_INTERVAL_NANOS)
+        {
+            return;
+        }
+        lastLog = now;
+        sampleHeap();
+        if (phase == Phase.DELETING)
+        {
+            log.info("%s: deleted %d relationships so far", procedure, relationshipsDeleted);
+        }
+        else
+        {
+            log.info("%s: visited %d of %d vertices (%.0f/s), %d over budget so far, %d edges deleted",
+                procedure, verticesVisited, nodeCount, verticesPerSecond(now), verticesTruncated, edgesDeleted);
+        }
+    }
+
+    private double verticesPerSecond(long now)
+    {
+        long nanos = phaseNanos[Phase.TRUNCATING.ordinal()] + (phase == Phase.TRUNCATING ? now - phaseStart : 0);
+        return nanos == 0 ? 0 : verticesVisited * 1e9 / nanos;
+    }
+
+    private void sampleHeap()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        peakHeapBytes = Math.max(peakHeapBytes, runtime.totalMemory() - runtime.freeMemory());
+    }
+
+    public synchronized Metrics snapshot()
+    {
+        long now = endNanos != 0 ? endNanos : System.nanoTime();
+        long[] nanos = phaseNanos.clone();
+        if (endNanos == 0)
+        {
+            nanos[phase.ordinal()] += now - phaseStart;
+        }
+        return new Metrics(this, now, nanos);
+    }
+
+    /**
+     * Output record of {@code example.triangleCountStats}. Durations are in
+     * milliseconds; cache counters cover every query since startup.
+     * {@code resumedFrom} is the vertex a resumed run picked up from, or null.
+     */
+    public static class Metrics {
+        public String procedure;
+        public String phase;
+        public Boolean running;
+        public Long startedAt;
+        public Long elapsedMs;
+        public Long projectMs;
+        public Long countMs;
+        public Long truncateMs;
+        public Long deleteMs;
+        public Long nodes;
+        public Long edges;
+        public Long verticesVisited;
+        public Long verticesTruncated;
+        public Double verticesPerSecond;
+        public Long edgesDeleted;
+        public Long trianglesDestroyed;
+        public Long relationshipsDeleted;
+        public Long peakHeapBytes;
+        public Long resumedFrom;
+        public Long cacheHits;
+        public Long cacheMisses;
+        public Double cacheHitRate;
+
+        private Metrics(RunStats stats, long now, long[] nanos)
+        {
+            this.procedure = stats.procedure;
+            this.phase = stats.phase.name();
+            this.running = stats.endNanos == 0;
+            this.startedAt = stats.startedAt;
+            this.elapsedMs = TimeUnit.NANOSECONDS.toMillis(now - stats.startNanos);
+            this.projectMs = TimeUnit.NANOSECONDS.toMillis(nanos[Phase.PROJECTING.ordinal()]);
+            this.countMs = TimeUnit.NANOSECONDS.toMillis(nanos[Phase.COUNTING.ordinal()]);
+            this.truncateMs = TimeUnit.NANOSECONDS.toMillis(nanos[Phase.TRUNCATING.ordinal()]);
+            this.deleteMs = TimeUnit.NANOSECONDS.toMillis(nanos[Phase.DELETING.ordinal()]);
+            this.nodes = (long) stats.nodeCount;
+            this.edges = stats.edgeCount;
+            this.verticesVisited = (long) stats.verticesVisited;
+            this.verticesTruncated = (long) stats.verticesTruncated;
+            long truncating = nanos[Phase.TRUNCATING.ordinal()];
+            this.verticesPerSecond = truncating == 0 ? 0.0 : stats.verticesVisited * 1e9 / truncating;
+            this.edgesDeleted = stats.edgesDeleted;
+            this.trianglesDestroyed = stats.trianglesDestroyed;
+            this.relationshipsDeleted = stats.relationshipsDeleted;
+            this.peakHeapBytes = stats.peakHeapBytes;
+            this.resumedFrom = stats.resumedFrom == null ? null : (long) stats.resumedFrom;
+            this.cacheHits = ProjectionCache.hits();
+            this.cacheMisses = ProjectionCache.misses();
+            long lookups = cacheHits + cacheMisses;
+            this.cacheHitRate = lookups == 0 ? 0.0 : (double) cacheHits / lookups;
+        }
+    }
+}
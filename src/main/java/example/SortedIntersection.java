@@ -0,0 +1,110 @@
+package example;
+
+/**
+ * The sorted-set intersection kernel behind triangle counting: finding the
+ * common values of two ascending, duplicate-free ranges of {@link IntArray}s.
+ * <p>
+ * {@link #next} finds one common value at a time, so callers can act on the
+ * positions of every match (to update per-slot counts) without a buffer,
+ * and can run on several threads at once. Each call picks its strategy
+ * from the lengths left: ranges of similar length are merged, otherwise the
+ * shorter range is walked and each of its values looked up in the longer by
+ * galloping.
+ * <p>
+ * The kernel is scalar: the plugin targets Java 11, like Neo4j 4.2, and the
+ * Vector API ({@code jdk.incubator.vector}) needs Java 16 or later. The merge
+ * selects its step instead of branching on each comparison, which is what
+ * the scalar loop loses most time to on the unpredictable comparisons of
+ * real neighbour lists.
+ */
+final class SortedIntersection {
+
+    /**
+     * Two ranges are merged unless one is more than this many times longer
+     * than the other.
+     */
+    static final int GALLOP_RATIO = 16;
+
+    private SortedIntersection()
+    {
+    }
+
+    /**
+     * Find the first value common to {@code x[i, xEnd)} and {@code y[j, yEnd)}.
+     *
+     * @return  Its positions in both, packed as {@code (long) xPosition << 32 | yPosition}, or -1 if there is none
+     */
+    static long next(IntArray x, int i, int xEnd, IntArray y, int j, int yEnd)
+    {
+        if ((long) (xEnd - i) * GALLOP_RATIO < yEnd - j)
+        {
+            return gallop(x, i, xEnd, y, j, yEnd);
+        }
+        if ((long) (yEnd - j) * GALLOP_RATIO < xEnd - i)
+        {
+            long match = gallop(y, j, yEnd, x, i, xEnd);
+            return match < 0 ? -1 : match << 32 | match >>> 32;
+        }
+        return merge(x, i, xEnd, y, j, yEnd);
+    }
+
+    /**
+     * {@link #next} for ranges of similar length: one step per value of either.
+     */
+    static long merge(IntArray x, int i, int xEnd, IntArray y, int j, int yEnd)
+    {
+        // Exactly one side advances per step; selecting the step instead of
+        // branching on the comparison avoids a misprediction on most steps
+        while (i < xEnd && j < yEnd)
+        {
+            int p = x.get(i);
+            int q = y.get(j);
+            if (p == q)
+            {
+                return (long) i << 32 | j;
+            }
+            int less = (p - q) >>> 31;
+            i += less;
+            j += less ^ 1;
+        }
+        return -1;
+    }
+
+    /**
+     * {@link #next} for a short {@code x} and a long {@code y}: each value of
+     * {@code x} is looked up in {@code y} by {@link #seek}.
+     */
+    static long gallop(IntArray x, int i, int xEnd, IntArray y, int j, int yEnd)
+    {
+        for (; i < xEnd && j < yEnd; i++)
+        {
+            int value = x.get(i);
+            j = seek(y, j, yEnd, value);
+            if (j < yEnd && y.get(j) == value)
+            {
+                return (long) i << 32 | j;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Galloping search: probe 1, 2, 4, ... positions past {@code from}, then
+     * binary search the last step. Costs O(log k) to skip k values.
+     *
+     * @param from  A position in {@code [from, to]} whose predecessors are all less than {@code value}
+     * @return  The first position from {@code from} on whose value is at least {@code value}, or {@code to}
+     */
+    static int seek(IntArray x, int from, int to, int value)
+    {
+        int low = from;
+        int high = from;
+        for (int step = 1; high < to && x.get(high) < value; step <<= 1)
+        {
+            low = high + 1;
+            high += step;
+        }
+        int position = x.binarySearch(low, Math.min(high, to), value);
+        return position >= 0 ? position : -(position + 1);
+    }
+}
@@ -0,0 +1,63 @@
+package example;
+
+import org.neo4j.graphdb.TransactionTerminatedException;
+import org.neo4j.kernel.api.exceptions.Status;
+import org.neo4j.procedure.TerminationGuard;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cooperative cancellation for the long loops of a procedure call. The loops
+ * call {@link #check()} every so often, which throws once the transaction has
+ * been terminated (e.g. by {@code dbms.killQuery} or the transaction timeout)
+ * or once the call has run for longer than its own {@code timeoutMs}.
+ * <p>
+ * Checks are cheap enough to be made from every worker thread of a parallel
+ * count.
+ */
+public class Termination {
+
+    /**
+     * Never terminates, for callers outside a procedure.
+     */
+    public static final Termination NONE = new Termination(null, 0);
+
+    private final TerminationGuard guard;
+    private final long deadline;
+    private final long timeoutMs;
+
+    private Termination(TerminationGuard guard, long timeoutMs)
+    {
+        this.guard = guard;
+        this.timeoutMs = timeoutMs;
+        this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    }
+
+    /**
+     * @param guard  The guard of the calling procedure, or null
+     * @param timeoutMs  How long the call may run from now, or 0 for no limit of its own
+     */
+    public static Termination of(TerminationGuard guard, Number timeoutMs)
+    {
+        if (timeoutMs.longValue() < 0)
+        {
+            throw new IllegalArgumentException("timeoutMs must not be negative, got " + timeoutMs);
+        }
+        return new Termination(guard, timeoutMs.longValue());
+    }
+
+    /**
+     * @throws TransactionTerminatedException  If the transaction was terminated or the timeout has passed
+     */
+    public void check()
+    {
+        if (guard != null)
+        {
+            guard.check();
+        }
+        if (timeoutMs > 0 && System.nanoTime() - deadline > 0)
+        {
+            throw new TransactionTerminatedException(Status.Transaction.TransactionTimedOut);
+        }
+    }
+}
@@ -29,8 +29,6 @@ import java.lang.IllegalArgumentException;
  */
 public class TriangleCount {
 
-    static final Label PERSON = Label.label("Person");
-
     @Context
     public GraphDatabaseService db;
     
@@ -39,126 +37,70 @@ public class TriangleCount {
     @Context
     public Log log;
 
+    // Lets the count notice dbms.killQuery and the transaction timeout
+    @Context
+    public TerminationGuard terminationGuard;
+
     /**
      * Regular triangle counting algorithm
      * 
+     * @param config  {@code concurrency}, {@code spillDirectory} and the scope keys, see {@link ProcedureConfig}
      * @return  A triangle count instance with the number of triangles for each vertex in the (sub) graph
      */
     @Procedure(value = "example.triangleCount", mode=Mode.WRITE)
     @Description("Count triangles.")
-    public Stream<NodeTriangleCount> triangleCount() {
-        List<Node> nodes = db.beginTx().findNodes(PERSON).stream().collect(Collectors.toList());
-        int nodeTriCount[] = countAllVertexTriangles();
+    public Stream<NodeTriangleCount> triangleCount(@Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+        TriangleCounter counter = Count(ProcedureConfig.of(config, ProcedureConfig.CONCURRENCY, ProcedureConfig.SPILL_DIRECTORY));
 
-        ArrayList<NodeTriangleCount> finalCounts = new ArrayList<NodeTriangleCount>();
-        for (int i = 0; i < nodeTriCount.length; i++)
-        {
-            finalCounts.add(new NodeTriangleCount((long) i, (long) nodeTriCount[i]));
-        }
-
-        return finalCounts.stream();
+        return NodeCountSpliterator.stream(counter.graph(), counter.vertexTriangles(), NodeTriangleCount::new);
     }
 
     @Procedure(value = "example.triangleHistogram", mode=Mode.WRITE)
     @Description("Create a triangle count histogram aggregation.")
-    public Stream<PerturbedValue> triangleHistogram() {
-        List<Long> counts = triangleCount()
-            .map(count -> count.triangleCount)
-            .collect(Collectors.toList());
-        
-        ArrayList<PerturbedValue> perturbedValues = new ArrayList<PerturbedValue>();
-
-        IntStream.rangeClosed(0, Collections.max(counts).intValue()).forEachOrdered(step -> {
-            int numVertices = Collections.frequency(counts, (long) step);
-            perturbedValues.add(new PerturbedValue((long) step, (double) numVertices));
-        });
+    public Stream<PerturbedValue> triangleHistogram(@Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+        long[] buckets = Count(ProcedureConfig.of(config, ProcedureConfig.CONCURRENCY, ProcedureConfig.SPILL_DIRECTORY)).histogram();
 
-        
-        return perturbedValues.stream();
-    }
-
-    private int TriangleCountByNodeId(long nodeId)
-    {       
-        Node node = db.beginTx().getNodeById(nodeId);
-        int triangleCount = 0;
-        
-        List<Long> triangleCandidateIds = StreamSupport
-            .stream(node.getRelationships().spliterator(),false)
-            .map(rel -> rel.getOtherNodeId(node.getId()))
-            .collect(Collectors.toList());
-
-        for(Relationship rel : node.getRelationships())
+        ArrayList<PerturbedValue> perturbedValues = new ArrayList<PerturbedValue>();
+        for (int step = 0; step < buckets.length; step++)
         {
-            Node neighbor = rel.getOtherNode(node);
-            List<Relationship> thirdEdges = StreamSupport
-                .stream(neighbor.getRelationships().spliterator(),false)
-                .filter(thirdEdge -> triangleCandidateIds.contains(thirdEdge.getOtherNode(neighbor).getId()))
-                .filter(thirdEdge -> thirdEdge.getOtherNode(neighbor).getId() > neighbor.getId())
-                .collect(Collectors.toList());
-            
-            triangleCount += thirdEdges.size();
+            perturbedValues.add(new PerturbedValue((long) step, (double) buckets[step]));
         }
 
-        return triangleCount;
+        return perturbedValues.stream();
     }
 
-    private int EdgeTriangleCount(long firstNodeId, long secondNodeId)
-    {
-        Node firstNode = db.beginTx().getNodeById(firstNodeId);
-        Node secondNode = db.beginTx().getNodeById(secondNodeId);
-        
-        List<Long> firstNodeNeighbors = StreamSupport
-            .stream(firstNode.getRelationships().spliterator(),false)
-            .map(rel -> rel.getOtherNodeId(firstNodeId))
-            .collect(Collectors.toList());
-
-        List<Long> secondNodeNeighbors = StreamSupport
-            .stream(secondNode.getRelationships().spliterator(),false)
-            .map(rel -> rel.getOtherNodeId(secondNodeId))
-            .collect(Collectors.toList());
-        
-        Set<Long> result = firstNodeNeighbors.stream()
-            .distinct()
-            .filter(secondNodeNeighbors::contains)
-            .collect(Collectors.toSet());
-
-        return result.size();
+    /**
+     * Drop the cached projections of this database, e.g. after changing the
+     * store in a way transaction events do not report (such as an offline import).
+     */
+    @Procedure(value = "example.clearProjectionCache", mode=Mode.READ)
+    @Description("Drop the cached triangle projections of the current database.")
+    public void clearProjectionCache() {
+        ProjectionCache.clear(db);
     }
 
-    private boolean DeleteEdge(long originId, long targetId)
+    /**
+     * Count the projection selected by {@code config}. On the heap the counts
+     * come from the {@link ProjectionCache} and must not be modified.
+     */
+    private TriangleCounter Count(ProcedureConfig config)
     {
-        final long deletionCandidateId = targetId;
-                    
-        try (Transaction tx = db.beginTx()) {
-            Node originVertex = tx.getNodeById(originId);
-
-            for (Relationship r : originVertex.getRelationships()) {
-                if(r.getOtherNodeId(originVertex.getId()) == targetId)
-                {
-                    r.delete();
-                }
-            }
-            tx.commit();
+        GraphScope scope = config.scope();
+        java.nio.file.Path spill = GraphProjection.spillDirectory(config.spillDirectory());
+        Termination termination = Termination.of(terminationGuard, 0);
+        if (spill == null)
+        {
+            return ProjectionCache.baseCounts(db, scope, config.concurrency(), termination);
         }
 
-        return true;
-    }
-
-    private int[] countAllVertexTriangles()
-    {
-        List<Node> nodes = db.beginTx().findNodes(PERSON).stream().collect(Collectors.toList());
-
-        int nodeTriCount[] = new int[nodes.size()];
-        for(Node node : nodes)
+        GraphProjection graph;
+        try (Transaction tx = db.beginTx())
         {
-            nodeTriCount[(int) node.getId()] = TriangleCountByNodeId(node.getId());
+            graph = GraphProjection.load(tx, scope, false, spill, termination);
         }
-
-        return nodeTriCount;
+        return TriangleCounter.count(graph, config.concurrency(), termination);
     }
 
-
-
     /**
      * This is the output record for our search procedure. All procedures
      * that return results return them as a Stream of Records, where the
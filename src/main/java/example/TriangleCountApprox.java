@@ -0,0 +1,132 @@
+package example;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+
+import org.neo4j.logging.Log;
+import org.neo4j.procedure.*;
+
+import java.util.Map;
+import java.util.stream.*;
+
+import org.apache.commons.math3.distribution.NormalDistribution;
+
+import example.TriangleCountSecure.PerturbedValue;
+
+/**
+ * Approximate triangle counts from a random edge sample, for exploratory
+ * queries where an exact count of the whole graph is too slow.
+ * See {@link TriangleEstimator}.
+ */
+public class TriangleCountApprox {
+
+    @Context
+    public GraphDatabaseService db;
+
+    @Context
+    public Log log;
+
+    // Lets loading and counting the sample notice dbms.killQuery and the transaction timeout
+    @Context
+    public TerminationGuard terminationGuard;
+
+    /**
+     * Estimate the number of triangles from a DOULION edge sample
+     *
+     * @param sampleRate  The probability of keeping an edge, in (0, 1]
+     * @param config  {@code seed} of the edge sampling (the same seed on the same graph gives the same
+     *                estimate), {@code confidence}, the coverage of the reported interval,
+     *                {@code concurrency}, {@code spillDirectory}, {@code timeoutMs} and the scope keys,
+     *                see {@link ProcedureConfig}
+     * @return  A single row with the estimate and its confidence interval
+     */
+    @Procedure(value = "example.triangleCountApprox", mode=Mode.READ)
+    @Description("Estimate the number of triangles from an edge sample.")
+    public Stream<ApproximateTriangleCount> triangleCountApprox(@Name(value = "sampleRate", defaultValue = "0.1") Number sampleRate,
+                                                                @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+        ProcedureConfig options = ProcedureConfig.of(config, ProcedureConfig.SEED, ProcedureConfig.CONFIDENCE, ProcedureConfig.CONCURRENCY,
+            ProcedureConfig.SPILL_DIRECTORY, ProcedureConfig.TIMEOUT_MS);
+        double confidence = options.confidence();
+        if (!(confidence > 0 && confidence < 1))
+        {
+            throw new IllegalArgumentException("confidence must be in (0, 1), got " + confidence);
+        }
+
+        TriangleEstimator estimator = Estimate(sampleRate, options);
+        double z = new NormalDistribution().inverseCumulativeProbability((1 + confidence) / 2);
+
+        return Stream.of(new ApproximateTriangleCount(estimator, z));
+    }
+
+    /**
+     * Laplace-perturbed histogram of the estimated per-vertex counts. Estimates
+     * above {@code lambda} are counted in the last bucket.
+     * <p>
+     * This is NOT differentially private. The noise is scaled for a
+     * lambda-bounded graph, but the sample is not truncated, and a single
+     * edge moves the scaled-up estimates of many vertices across buckets. Use
+     * {@code example.triangleHistogramSecure} where privacy matters.
+     *
+     * @param lambda  The largest triangle count with its own bucket
+     * @param epsilon  The privacy budget of the noise
+     * @param sampleRate  The probability of keeping an edge, in (0, 1]
+     * @param config  {@code seed} of the edge sampling, {@code concurrency}, {@code spillDirectory},
+     *                {@code timeoutMs} and the scope keys, see {@link ProcedureConfig}
+     */
+    @Procedure(value = "example.triangleHistogramApprox", mode=Mode.READ)
+    @Description("Perturbed triangle count histogram from an edge sample; not differentially private.")
+    public Stream<PerturbedValue> triangleHistogramApprox(@Name("lambda") Number lambda, @Name("epsilon") Double epsilon,
+                                                          @Name(value = "sampleRate", defaultValue = "0.1") Number sampleRate,
+                                                          @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+        TriangleCountSecure.CheckLambda(lambda);
+        TriangleEstimator estimator = Estimate(sampleRate, ProcedureConfig.of(config, ProcedureConfig.SEED, ProcedureConfig.CONCURRENCY,
+            ProcedureConfig.SPILL_DIRECTORY, ProcedureConfig.TIMEOUT_MS));
+
+        return TriangleCountSecure.PerturbedHistogram(estimator.histogram(lambda.intValue()), lambda, epsilon);
+    }
+
+    /**
+     * Load the projection afresh and sample it. The {@link ProjectionCache}
+     * is not used: sampling removes edges in place, so a cached projection
+     * would have to be copied, and its entries come with the exact counts
+     * an estimate is meant to save.
+     */
+    private TriangleEstimator Estimate(Number sampleRate, ProcedureConfig config)
+    {
+        Termination termination = Termination.of(terminationGuard, config.timeoutMs());
+        java.nio.file.Path spill = GraphProjection.spillDirectory(config.spillDirectory());
+        GraphProjection graph;
+        try (Transaction tx = db.beginTx())
+        {
+            graph = GraphProjection.load(tx, config.scope(), false, spill, termination);
+        }
+        long edges = graph.edgeCount();
+
+        TriangleEstimator estimator = TriangleEstimator.estimate(graph, sampleRate.doubleValue(), config.seed(), config.concurrency(), termination);
+        log.info("Sampled %d of %d edges at rate %f", estimator.sampledEdges(), edges, estimator.sampleRate());
+
+        return estimator;
+    }
+
+    /**
+     * Output record of {@code example.triangleCountApprox}.
+     */
+    public static class ApproximateTriangleCount {
+        public Double triangles;
+        public Double lowerBound;
+        public Double upperBound;
+        public Double standardError;
+        public Double sampleRate;
+        public Long sampledEdges;
+
+        public ApproximateTriangleCount(TriangleEstimator estimator, double z)
+        {
+            this.triangles = estimator.triangles();
+            this.lowerBound = estimator.lowerBound(z);
+            this.upperBound = estimator.upperBound(z);
+            this.standardError = estimator.standardError();
+            this.sampleRate = estimator.sampleRate();
+            this.sampledEdges = estimator.sampledEdges();
+        }
+    }
+}
@@ -8,8 +8,10 @@ package example;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
 import org.neo4j.graphdb.Path;
 import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.TransactionTerminatedException;
 import org.neo4j.graphdb.Relationship;
 
 import org.neo4j.graphdb.traversal.*;
@@ -31,8 +33,6 @@ import org.apache.commons.math3.distribution.LaplaceDistribution;
  */
 public class TriangleCountSecure {
 
-    static final Label PERSON = Label.label("Person");
-
     @Context
     public GraphDatabaseService db;
     
@@ -41,222 +41,354 @@ public class TriangleCountSecure {
     @Context
     public Log log;
 
+    // Lets the long loops notice dbms.killQuery and the transaction timeout
+    @Context
+    public TerminationGuard terminationGuard;
+
+    // The config keys taken by the procedures that truncate, see ProcedureConfig
+    private static final String[] VIRTUAL_OPTIONS = {ProcedureConfig.CONCURRENCY, ProcedureConfig.SPILL_DIRECTORY,
+        ProcedureConfig.TIMEOUT_MS, ProcedureConfig.PARALLEL_TRUNCATION, ProcedureConfig.SEED};
+    private static final String[] WRITE_OPTIONS = {ProcedureConfig.CONCURRENCY, ProcedureConfig.BATCH_SIZE, ProcedureConfig.SPILL_DIRECTORY,
+        ProcedureConfig.TIMEOUT_MS, ProcedureConfig.PARALLEL_TRUNCATION, ProcedureConfig.SEED};
+
     /**
      * Best Adaption algorithm for triangle counting queries
      * Differentially Private Triangle Counting in Large Graphs, Ding et al.,2021
      * Algorithm 2 in the paper
      * 
      * @param lambda  The upper bound to impose on the subgraph
+     * @param config  {@code concurrency}, {@code batchSize}, {@code spillDirectory}, {@code timeoutMs},
+     *                {@code parallelTruncation}, {@code seed} and the scope keys, see {@link ProcedureConfig}
      * @return  A triangle count instance with the number of triangles for each vertex in the (sub) graph
      */
     @Procedure(value = "example.triangleCountSecure", mode=Mode.WRITE)
     @Description("Securely count triangles.")
-    public Stream<NodeTriangleCount> triangleCountSecure(@Name("lambda") Number lambda) {
+    public Stream<NodeTriangleCount> triangleCountSecure(@Name("lambda") Number lambda,
+                                                         @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
 
-        int nodeTriCount[] = countAllVertexTriangles();
-        int edgeTriCount[][] = countAllEdgeTriangles();
+        ProcedureConfig options = ProcedureConfig.of(config, WRITE_OPTIONS);
+        TriangleCounter counter = Truncate("example.triangleCountSecure", lambda, options, options.batchSize());
 
-        try(Transaction tx = db.beginTx())
-        {
-            List<Node> nodes = tx.findNodes(PERSON).stream().collect(Collectors.toList());
-            
-            for(Node node : nodes)
-            {
-                final int nodeId = (int) node.getId();
-    
-                while (nodeTriCount[nodeId] > lambda.intValue())
-                {
-                    int temp = 0;
-                    long k = 0;
-    
-                    for(Relationship rel : node.getRelationships())
-                    {
-                        Node neighbor = rel.getOtherNode(node);
-                        int neighborTriCount = TriangleCountByNodeId(neighbor.getId());
-    
-                        if (neighborTriCount > temp)
-                        {
-                            temp = neighborTriCount;
-                            k = neighbor.getId();
-                        }
-                    }
-    
-                    if(temp < lambda.intValue())
-                    {
-                        temp = nodeTriCount[nodeId] - lambda.intValue();
-                        k = 0;
-                        int minTemp = Integer.MAX_VALUE - 1;
-    
-    
-                        for(Relationship rel : node.getRelationships())
-                        {
-                            Node neighbor = rel.getOtherNode(node);
-                            int diff = Math.abs(temp - edgeTriCount[(int) nodeId][(int) neighbor.getId()]);
-    
-                            //Line 16
-                            // Note: I used '<' instead of '>'. I think '>' is a mistake in the paper since minTemp is set to INT MAX
-                            if (diff < minTemp)
-                            {
-                                minTemp = diff;
-                                k = neighbor.getId();
-                            }
-                        }
-                    }
-    
-                    //Delete edge v_i -> v_k
-                    try
-                    {
-                        boolean success = DeleteEdge(nodeId, k);
-                    }
-                    catch(IllegalArgumentException e) { System.err.println(e); }
-    
-                    //Update Triangle Count
-                    nodeTriCount[nodeId] = TriangleCountByNodeId(node.getId());
-                    edgeTriCount = countAllEdgeTriangles();
-                }
-    
-                nodeTriCount = countAllVertexTriangles();
-            }
-        }
-        
-        ArrayList<NodeTriangleCount> finalPerturbedCounts = new ArrayList<NodeTriangleCount>();
-        for (int i = 0; i < nodeTriCount.length; i++)
-        {
-            finalPerturbedCounts.add(new NodeTriangleCount((long) i, (long) nodeTriCount[i]));
-        }
+        return NodeCountSpliterator.stream(counter.graph(), counter.vertexTriangles(), NodeTriangleCount::new);
+    }
+
+    /**
+     * Best Adaptation without touching the store: edges are only deleted from
+     * the in-memory projection, so the procedure is read-only and can run
+     * alongside other workloads.
+     *
+     * @param lambda  The upper bound to impose on the subgraph
+     * @param config  {@code concurrency}, {@code spillDirectory}, {@code timeoutMs}, {@code parallelTruncation},
+     *                {@code seed} and the scope keys, see {@link ProcedureConfig}
+     * @return  A triangle count instance with the number of triangles for each vertex in the lambda-bounded projection
+     */
+    @Procedure(value = "example.triangleCountSecureVirtual", mode=Mode.READ)
+    @Description("Securely count triangles without deleting relationships.")
+    public Stream<NodeTriangleCount> triangleCountSecureVirtual(@Name("lambda") Number lambda,
+                                                                @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
 
-        return finalPerturbedCounts.stream();
+        TriangleCounter counter = Truncate("example.triangleCountSecureVirtual", lambda, ProcedureConfig.of(config, VIRTUAL_OPTIONS), 0);
+
+        return NodeCountSpliterator.stream(counter.graph(), counter.vertexTriangles(), NodeTriangleCount::new);
     }
 
     @Procedure(value = "example.triangleHistogramSecure", mode=Mode.WRITE)
     @Description("Securely count triangles.")
-    public Stream<PerturbedValue> TriangleHistogramSecure(@Name("lambda") Number lambda, @Name("epsilon") Double epsilon) {
-        List<Long> counts = triangleCountSecure(lambda)
-            .map(count -> count.triangleCount)
-            .collect(Collectors.toList());
-        
-        ArrayList<PerturbedValue> perturbedValues = new ArrayList<PerturbedValue>();
+    public Stream<PerturbedValue> TriangleHistogramSecure(@Name("lambda") Number lambda, @Name("epsilon") Double epsilon,
+                                                          @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+        ProcedureConfig options = ProcedureConfig.of(config, WRITE_OPTIONS);
+        return PerturbedHistogram(Truncate("example.triangleHistogramSecure", lambda, options, options.batchSize()).histogram(lambda.intValue()), lambda, epsilon);
+    }
 
-        Double distributionWidth = (( 4 * lambda.doubleValue() + 1) ) / epsilon;
-        LaplaceDistribution lap = new LaplaceDistribution(0, distributionWidth);
+    @Procedure(value = "example.triangleHistogramSecureVirtual", mode=Mode.READ)
+    @Description("Securely count triangles without deleting relationships.")
+    public Stream<PerturbedValue> TriangleHistogramSecureVirtual(@Name("lambda") Number lambda, @Name("epsilon") Double epsilon,
+                                                                 @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+        return PerturbedHistogram(Truncate("example.triangleHistogramSecureVirtual", lambda, ProcedureConfig.of(config, VIRTUAL_OPTIONS), 0).histogram(lambda.intValue()), lambda, epsilon);
+    }
 
-        IntStream.rangeClosed(0, lambda.intValue()).forEachOrdered(step -> {
-            int numVertices = Collections.frequency(counts, (long) step);
-            perturbedValues.add(new PerturbedValue((long) step, Math.max((double) numVertices + lap.sample(),0.0d)));
-        });
+    /**
+     * Perturbed histograms for several lambdas from a single count. Lambdas
+     * are processed in descending order, and each truncation continues from
+     * the graph already bounded by the previous, larger lambda, so every edge
+     * is deleted at most once over the whole sweep. The store is never
+     * modified.
+     * <p>
+     * Each histogram is perturbed with {@code epsilon}, so the sweep as a
+     * whole spends one {@code epsilon} per lambda. A bounded graph reached
+     * through larger lambdas can differ from the one a single run of
+     * {@code triangleHistogramSecureVirtual} would produce, but is just as
+     * lambda-bounded.
+     *
+     * @param lambdas  The upper bounds to sweep, in any order
+     * @param epsilon  The privacy budget of each histogram
+     * @param config  {@code concurrency} and the scope keys, see {@link ProcedureConfig}
+     * @return  One histogram per distinct lambda, largest lambda first
+     */
+    @Procedure(value = "example.triangleHistogramSecureSweep", mode=Mode.READ)
+    @Description("Securely count triangles for several lambdas at once.")
+    public Stream<SweepValue> TriangleHistogramSecureSweep(@Name("lambdas") List<Number> lambdas, @Name("epsilon") Double epsilon,
+                                                           @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+        ProcedureConfig options = ProcedureConfig.of(config, ProcedureConfig.CONCURRENCY);
+        int[] sorted = lambdas.stream().mapToInt(Number::intValue).distinct().sorted().toArray();
+        if (sorted.length == 0 || sorted[0] < 0)
+        {
+            throw new IllegalArgumentException("lambdas must be a non-empty list of non-negative values");
+        }
 
-        
-        return perturbedValues.stream();
+        Termination termination = Termination.of(terminationGuard, 0);
+        GraphScope scope = options.scope();
+        RunStats stats = RunStats.start(db, "example.triangleHistogramSecureSweep", log);
+        try
+        {
+            TriangleCounter counter = ProjectionCache.counts(db, scope, false, options.concurrency(), stats, termination);
+            stats.projected(counter.graph());
+            stats.phase(RunStats.Phase.TRUNCATING);
+
+            ArrayList<SweepValue> values = new ArrayList<SweepValue>();
+            for (int i = sorted.length - 1; i >= 0; i--)
+            {
+                int lambda = sorted[i];
+                new BestAdaptation(counter, lambda, stats, termination).run();
+                log.info("Bounded by lambda %d with %d edges left", lambda, counter.graph().edgeCount());
+
+                PerturbedHistogram(counter.histogram(lambda), lambda, epsilon)
+                    .forEach(value -> values.add(new SweepValue(lambda, value.step, value.perturbedValue)));
+            }
+
+            stats.finish();
+            return values.stream();
+        }
+        catch (RuntimeException e)
+        {
+            stats.fail(e);
+            throw e;
+        }
     }
 
-    private int TriangleCountByNodeId(long nodeId)
-    {    
-        int triangleCount = 0;   
-        try (Transaction tx = db.beginTx())
+    /**
+     * Bound the graph once and perturb its histogram for every epsilon in
+     * {@code epsilons}, {@code draws} times each. Only the noise depends on
+     * epsilon, so Best Adaptation runs a single time. The store is never
+     * modified.
+     *
+     * @param lambda  The upper bound to impose on the subgraph
+     * @param epsilons  The privacy budgets to perturb with
+     * @param draws  The number of independent noise draws per epsilon
+     * @param config  {@code concurrency} and the scope keys, see {@link ProcedureConfig}
+     * @return  {@code draws} histograms per epsilon, in the order of {@code epsilons}
+     */
+    @Procedure(value = "example.triangleHistogramSecureBatch", mode=Mode.READ)
+    @Description("Securely count triangles once and perturb the histogram for several epsilons.")
+    public Stream<BatchValue> TriangleHistogramSecureBatch(@Name("lambda") Number lambda, @Name("epsilons") List<Double> epsilons,
+                                                           @Name(value = "draws", defaultValue = "1") Number draws,
+                                                           @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+        if (epsilons.isEmpty() || draws.intValue() < 1)
         {
-            Node node = tx.getNodeById(nodeId);
-            
-            List<Long> triangleCandidateIds = StreamSupport
-                .stream(node.getRelationships().spliterator(),false)
-                .map(rel -> rel.getOtherNodeId(node.getId()))
-                .collect(Collectors.toList());
-    
-            for(Relationship rel : node.getRelationships())
+            throw new IllegalArgumentException("epsilons must not be empty and draws must be at least 1");
+        }
+
+        long[] buckets = Truncate("example.triangleHistogramSecureBatch", lambda, ProcedureConfig.of(config, ProcedureConfig.CONCURRENCY), 0).histogram(lambda.intValue());
+
+        ArrayList<BatchValue> values = new ArrayList<BatchValue>(epsilons.size() * draws.intValue() * buckets.length);
+        for (Double epsilon : epsilons)
+        {
+            double[] perturbed = Perturb(buckets, lambda, epsilon, draws.intValue());
+            for (int i = 0; i < perturbed.length; i++)
             {
-                Node neighbor = rel.getOtherNode(node);
-                List<Relationship> thirdEdges = StreamSupport
-                    .stream(neighbor.getRelationships().spliterator(),false)
-                    .filter(thirdEdge -> triangleCandidateIds.contains(thirdEdge.getOtherNode(neighbor).getId()))
-                    .filter(thirdEdge -> thirdEdge.getOtherNode(neighbor).getId() > neighbor.getId())
-                    .collect(Collectors.toList());
-                
-                triangleCount += thirdEdges.size();
+                values.add(new BatchValue(epsilon, i / buckets.length, i % buckets.length, perturbed[i]));
             }
-    
         }
 
-        return triangleCount;
+        return values.stream();
     }
 
-    private int EdgeTriangleCount(long firstNodeId, long secondNodeId)
+    /**
+     * @throws IllegalArgumentException  if {@code lambda} is negative, before any work is done
+     */
+    static void CheckLambda(Number lambda)
     {
-        int count = 0;
-
-        try(Transaction tx = db.beginTx())
+        if (lambda.longValue() < 0)
         {
-            Node firstNode = tx.getNodeById(firstNodeId);
-            Node secondNode = tx.getNodeById(secondNodeId);
-            
-            List<Long> firstNodeNeighbors = StreamSupport
-                .stream(firstNode.getRelationships().spliterator(),false)
-                .map(rel -> rel.getOtherNodeId(firstNodeId))
-                .collect(Collectors.toList());
-    
-            List<Long> secondNodeNeighbors = StreamSupport
-                .stream(secondNode.getRelationships().spliterator(),false)
-                .map(rel -> rel.getOtherNodeId(secondNodeId))
-                .collect(Collectors.toList());
-            
-            Set<Long> result = firstNodeNeighbors.stream()
-                .distinct()
-                .filter(secondNodeNeighbors::contains)
-                .collect(Collectors.toSet());
-    
-            count = result.size();
+            throw new IllegalArgumentException("lambda must not be negative, got " + lambda);
         }
-        
-        return count;
     }
 
-    private boolean DeleteEdge(long originId, long targetId)
+    /**
+     * Add Laplace noise of width {@code (4 lambda + 1) / epsilon} to every bucket
+     * of a histogram over {@code 0..lambda} triangles.
+     */
+    static Stream<PerturbedValue> PerturbedHistogram(long[] buckets, Number lambda, Double epsilon)
     {
-        final long deletionCandidateId = targetId;
-                    
-        try (Transaction tx = db.beginTx()) {
-            Node originVertex = tx.getNodeById(originId);
+        ArrayList<PerturbedValue> perturbedValues = new ArrayList<PerturbedValue>();
 
-            for (Relationship r : originVertex.getRelationships()) {
-                if(r.getOtherNodeId(originVertex.getId()) == targetId)
-                {
-                    r.delete();
-                }
-            }
-            tx.commit();
+        double[] perturbed = Perturb(buckets, lambda, epsilon, 1);
+        for (int step = 0; step < buckets.length; step++)
+        {
+            perturbedValues.add(new PerturbedValue((long) step, perturbed[step]));
         }
 
-        return true;
+        return perturbedValues.stream();
     }
 
-    private int[] countAllVertexTriangles()
+    /**
+     * Draw the noise for {@code draws} independent perturbations of
+     * {@code buckets} in a single sample from one distribution.
+     *
+     * @return  The perturbed histograms back to back, each clamped at 0
+     */
+    static double[] Perturb(long[] buckets, Number lambda, double epsilon, int draws)
     {
-        List<Node> nodes = db.beginTx().findNodes(PERSON).stream().collect(Collectors.toList());
+        double distributionWidth = (4 * lambda.doubleValue() + 1) / epsilon;
+        LaplaceDistribution lap = new LaplaceDistribution(0, distributionWidth);
 
-        int nodeTriCount[] = new int[nodes.size()];
-        for(Node node : nodes)
+        double[] perturbed = lap.sample(buckets.length * draws);
+        for (int i = 0; i < perturbed.length; i++)
         {
-            nodeTriCount[(int) node.getId()] = TriangleCountByNodeId(node.getId());
+            perturbed[i] = Math.max(buckets[i % buckets.length] + perturbed[i], 0.0d);
         }
 
-        return nodeTriCount;
+        return perturbed;
     }
 
-    private int[][] countAllEdgeTriangles()
-    {        
-        List<Node> nodes = db.beginTx().findNodes(PERSON).stream().collect(Collectors.toList());
-        int edgeTriCount[][] = new int[nodes.size()][nodes.size()];
-        for(Node node : nodes)
-        {        
-            for(Relationship r : node.getRelationships())
+    /**
+     * Timings and progress of the latest secure run on this database, while
+     * it runs or after it has finished.
+     *
+     * @return  A single row, or none if no secure procedure has run since startup
+     */
+    @Procedure(value = "example.triangleCountStats", mode=Mode.READ)
+    @Description("Report progress and timings of the latest secure triangle count.")
+    public Stream<RunStats.Metrics> triangleCountStats() {
+        RunStats stats = RunStats.latest(db);
+
+        return stats == null ? Stream.empty() : Stream.of(stats.snapshot());
+    }
+
+    /**
+     * Project the graph selected by {@code config} and bound it by {@code lambda}. On the heap
+     * the projection and its base counts are copied from the
+     * {@link ProjectionCache} instead of being loaded and counted again.
+     * <p>
+     * If the run is terminated while Best Adaptation runs, the partly bounded
+     * counts are checkpointed in the {@link ProjectionCache}, and the next run
+     * with the same {@code lambda} continues from them as long as the graph
+     * has not changed. Relationships already deleted from the store stay
+     * deleted; a run terminated while deleting starts over on what is left.
+     * <p>
+     * With {@link ProcedureConfig#parallelTruncation()} Best Adaptation runs
+     * through {@link BestAdaptation#runParallel(int, long)}, which neither
+     * resumes nor leaves checkpoints. Neither does a run with a
+     * {@link ProcedureConfig#spillDirectory()}: its projection is mapped
+     * from files deleted once it is unreachable, and keeping it in the cache
+     * would hold them on disk.
+     *
+     * @param procedure  The name the run is reported under in the log and {@code example.triangleCountStats}
+     * @param batchSize  Deletions per transaction when writing the deleted edges back, or 0 to leave the store untouched
+     * @return  The triangle counts of the lambda-bounded projection
+     */
+    private TriangleCounter Truncate(String procedure, Number lambda, ProcedureConfig config, int batchSize)
+    {
+        CheckLambda(lambda);
+        GraphScope scope = config.scope();
+        int concurrency = config.concurrency();
+        boolean parallel = config.parallelTruncation();
+        Termination termination = Termination.of(terminationGuard, config.timeoutMs());
+        RunStats stats = RunStats.start(db, procedure, log);
+        long generation = ProjectionCache.generation(db);
+        TriangleCounter counter = null;
+        BestAdaptation truncation = null;
+        boolean truncated = false;
+        boolean resumable = false;
+        try
+        {
+            java.nio.file.Path spill = GraphProjection.spillDirectory(config.spillDirectory());
+            resumable = !parallel && spill == null;
+            ProjectionCache.Checkpoint checkpoint = resumable ? ProjectionCache.resume(db, scope, lambda.intValue(), batchSize > 0) : null;
+            if (checkpoint != null)
             {
-                long neighborId = r.getOtherNodeId(node.getId());
-                edgeTriCount[(int) node.getId()][(int) neighborId] = EdgeTriangleCount(node.getId(), neighborId);
+                counter = checkpoint.counter;
+                stats.resumed(checkpoint.next);
+            }
+            else if (spill == null)
+            {
+                counter = ProjectionCache.counts(db, scope, batchSize > 0, concurrency, stats, termination);
+            }
+            else
+            {
+                GraphProjection graph;
+                try (Transaction tx = db.beginTx())
+                {
+                    graph = GraphProjection.load(tx, scope, batchSize > 0, spill, termination);
+                }
+                stats.phase(RunStats.Phase.COUNTING);
+                counter = TriangleCounter.count(graph, concurrency, termination);
+            }
+
+            GraphProjection graph = counter.graph();
+            stats.projected(graph);
+            stats.phase(RunStats.Phase.TRUNCATING);
+            truncation = new BestAdaptation(counter, lambda.intValue(), stats, termination);
+            if (parallel)
+            {
+                truncation.runParallel(concurrency, config.seed());
+            }
+            else
+            {
+                truncation.run(checkpoint == null ? 0 : checkpoint.next);
+            }
+            truncated = true;
+
+            if (batchSize > 0)
+            {
+                stats.phase(RunStats.Phase.DELETING);
+                DeleteRelationships(graph.removedRelationshipIds(), batchSize, stats, termination);
             }
-        }
 
-        return edgeTriCount;
+            stats.finish();
+            return counter;
+        }
+        catch (RuntimeException e)
+        {
+            // Terminations are only checked between deletions, so the counts are consistent and next() is the vertex to pick up at
+            if (e instanceof TransactionTerminatedException && truncation != null && !truncated && resumable)
+            {
+                ProjectionCache.checkpoint(db, scope, lambda.intValue(), counter, truncation.next(), generation);
+                log.info("%s: checkpointed at vertex %d of %d", procedure, truncation.next(), counter.graph().nodeCount());
+            }
+            stats.fail(e);
+            throw e;
+        }
     }
 
+    /**
+     * Delete the given relationships, committing every {@code batchSize} deletions.
+     */
+    private void DeleteRelationships(long[] relationshipIds, int batchSize, RunStats stats, Termination termination)
+    {
+        for (int from = 0; from < relationshipIds.length; from += batchSize)
+        {
+            termination.check();
+            try (Transaction tx = db.beginTx())
+            {
+                for (int i = from; i < Math.min(from + batchSize, relationshipIds.length); i++)
+                {
+                    try
+                    {
+                        tx.getRelationshipById(relationshipIds[i]).delete();
+                    }
+                    catch (NotFoundException e)
+                    {
+                        log.warn("Relationship %d was already deleted", relationshipIds[i]);
+                    }
+                }
+                tx.commit();
+            }
+            stats.relationshipsDeleted(Math.min(batchSize, relationshipIds.length - from));
+        }
 
+        log.info("Deleted %d relationships in batches of %d", relationshipIds.length, batchSize);
+    }
 
     /**
      * This is the output record for our search procedure. All procedures
@@ -292,6 +424,57 @@ public class TriangleCountSecure {
         }
     }
     
+    /**
+     * This is the output record for our search procedure. All procedures
+     * that return results return them as a Stream of Records, where the
+     * records are defined like this one - customized to fit what the procedure
+     * is returning.
+     * <p>
+     * These classes can only have public non-final fields, and the fields must
+     * be one of the following types:
+     *
+     * <ul>
+     *     <li>{@link String}</li>
+     *     <li>{@link Long} or {@code long}</li>
+     *     <li>{@link Double} or {@code double}</li>
+     *     <li>{@link Number}</li>
+     *     <li>{@link Boolean} or {@code boolean}</li>
+     *     <li>{@link Node}</li>
+     *     <li>{@link org.neo4j.graphdb.Relationship}</li>
+     *     <li>{@link org.neo4j.graphdb.Path}</li>
+     *     <li>{@link Map} with key {@link String} and value {@link Object}</li>
+     *     <li>{@link List} of elements of any valid field type, including {@link List}</li>
+     *     <li>{@link Object}, meaning any of the valid field types</li>
+     * </ul>
+     */
+    public static class BatchValue {
+        public Double epsilon;
+        public Long draw;
+        public Long step;
+        public Double perturbedValue;
+
+        public BatchValue(Double epsilon, long draw, long step, Double perturbedValue)
+        {
+            this.epsilon = epsilon;
+            this.draw = draw;
+            this.step = step;
+            this.perturbedValue = perturbedValue;
+        }
+    }
+
+    public static class SweepValue {
+        public Long lambda;
+        public Long step;
+        public Double perturbedValue;
+
+        public SweepValue(long lambda, long step, Double perturbedValue)
+        {
+            this.lambda = lambda;
+            this.step = step;
+            this.perturbedValue = perturbedValue;
+        }
+    }
+
     /**
      * This is the output record for our search procedure. All procedures
      * that return results return them as a Stream of Records, where the
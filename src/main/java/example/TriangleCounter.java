@@ -0,0 +1,456 @@
+package example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Exact triangle counting over a {@link GraphProjection}.
+ * <p>
+ * {@link #count(GraphProjection)} runs the degree-ordered forward algorithm:
+ * every edge is oriented from the endpoint of lower (degree, index) rank to the
+ * higher one, and each triangle is found exactly once by intersecting the
+ * oriented neighbour lists of its two lowest-ranked vertices (see
+ * {@link SortedIntersection}). Orienting by
+ * degree bounds every oriented list by O(sqrt(m)), giving O(m sqrt(m)) overall.
+ * The same pass yields the per-vertex counts and the per-edge support (the
+ * number of triangles each edge belongs to, see {@link EdgeSupport}).
+ * <p>
+ * After counting, {@link #removeEdge(int, int)} keeps both sets of counts
+ * exact by only touching the triangles destroyed by the removal.
+ */
+public class TriangleCounter {
+
+    /**
+     * Notified of every triangle destroyed by {@link #removeEdge(int, int, RemovalListener)},
+     * after the counts have been updated.
+     */
+    public interface RemovalListener {
+        /**
+         * @param w  The third vertex of the destroyed triangle
+         * @param uw  The slot of the edge from the first removed endpoint to {@code w}
+         * @param vw  The slot of the edge from the second removed endpoint to {@code w}
+         */
+        void triangleRemoved(int w, int uw, int vw);
+    }
+
+    private final GraphProjection graph;
+    private final int[] vertexTriangles;
+    private final EdgeSupport edgeTriangles;
+
+    private TriangleCounter(GraphProjection graph, int[] vertexTriangles, EdgeSupport edgeTriangles)
+    {
+        this.graph = graph;
+        this.vertexTriangles = vertexTriangles;
+        this.edgeTriangles = edgeTriangles;
+    }
+
+    /**
+     * Count the triangles of every vertex and every edge of {@code graph}.
+     * Removed edges are ignored.
+     */
+    public static TriangleCounter count(GraphProjection graph)
+    {
+        return count(graph, 1);
+    }
+
+    /**
+     * Count the triangles of every vertex and every edge of {@code graph} on
+     * {@code concurrency} threads.
+     * <p>
+     * Vertices are split into contiguous chunks of roughly equal estimated work
+     * (the merge lengths of their oriented edges), several per thread, and run
+     * on a dedicated fork-join pool. Vertex counts go to one array per worker
+     * thread and are summed afterwards. Edge support is updated atomically in
+     * place, since a triangle found at u also touches an edge that u does not
+     * own.
+     */
+    public static TriangleCounter count(GraphProjection graph, int concurrency)
+    {
+        return count(graph, concurrency, Termination.NONE);
+    }
+
+    /**
+     * Like {@link #count(GraphProjection, int)}, checking {@code termination}
+     * every few hundred vertices on every thread.
+     */
+    public static TriangleCounter count(GraphProjection graph, int concurrency, Termination termination)
+    {
+        int n = graph.nodeCount();
+        EdgeSupport edgeTriangles = new EdgeSupport(graph);
+
+        // Oriented adjacency: the slots of u whose target outranks u, and
+        // those targets next to each other so the intersection kernel scans
+        // them without going through the slots. Both keep the target order
+        // of the CSR segment.
+        int[] outOffsets = new int[n + 1];
+        for (int u = 0; u < n; u++)
+        {
+            int out = 0;
+            for (int slot = graph.start(u); slot < graph.end(u); slot++)
+            {
+                if (!graph.isRemoved(slot) && outranks(graph, graph.target(slot), u))
+                {
+                    out++;
+                }
+            }
+            outOffsets[u + 1] = outOffsets[u] + out;
+        }
+
+        IntArray outSlots = graph.newSlotArray(outOffsets[n]);
+        IntArray outTargets = graph.newSlotArray(outOffsets[n]);
+        for (int u = 0, i = 0; u < n; u++)
+        {
+            for (int slot = graph.start(u); slot < graph.end(u); slot++)
+            {
+                if (!graph.isRemoved(slot) && outranks(graph, graph.target(slot), u))
+                {
+                    outTargets.set(i, graph.target(slot));
+                    outSlots.set(i++, slot);
+                }
+            }
+        }
+
+        int[] vertexTriangles;
+        if (concurrency <= 1 || n < 2)
+        {
+            vertexTriangles = new int[n];
+            countRange(outOffsets, outSlots, outTargets, 0, n, vertexTriangles, edgeTriangles, false, termination);
+        }
+        else
+        {
+            vertexTriangles = countParallel(graph, outOffsets, outSlots, outTargets, edgeTriangles, concurrency, termination);
+        }
+
+        // Only oriented slots were counted; copy them to the reverse direction
+        for (int i = 0; i < outOffsets[n]; i++)
+        {
+            edgeTriangles.copyToMirror(outSlots.get(i));
+        }
+
+        return new TriangleCounter(graph, vertexTriangles, edgeTriangles);
+    }
+
+    private static int[] countParallel(GraphProjection graph, int[] outOffsets, IntArray outSlots, IntArray outTargets,
+                                       EdgeSupport edgeTriangles, int concurrency, Termination termination)
+    {
+        int n = graph.nodeCount();
+
+        long[] work = new long[n + 1];
+        for (int u = 0; u < n; u++)
+        {
+            long cost = 1;
+            int outDegree = outOffsets[u + 1] - outOffsets[u];
+            for (int i = outOffsets[u]; i < outOffsets[u + 1]; i++)
+            {
+                int v = outTargets.get(i);
+                cost += outDegree + outOffsets[v + 1] - outOffsets[v];
+            }
+            work[u + 1] = work[u] + cost;
+        }
+
+        int chunks = (int) Math.min(n, concurrency * 8L);
+        int[] bounds = new int[chunks + 1];
+        for (int c = 1, u = 0; c <= chunks; c++)
+        {
+            long goal = work[n] * c / chunks;
+            while (u < n && work[u] < goal)
+            {
+                u++;
+            }
+            bounds[c] = c == chunks ? n : u;
+        }
+
+        Queue<int[]> partials = new ConcurrentLinkedQueue<int[]>();
+        ThreadLocal<int[]> local = ThreadLocal.withInitial(() -> {
+            int[] counts = new int[n];
+            partials.add(counts);
+            return counts;
+        });
+
+        ForkJoinPool pool = new ForkJoinPool(concurrency);
+        try
+        {
+            List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+            for (int c = 0; c < chunks; c++)
+            {
+                final int from = bounds[c];
+                final int to = bounds[c + 1];
+                tasks.add(pool.submit(() ->
+                    countRange(outOffsets, outSlots, outTargets, from, to, local.get(), edgeTriangles, true, termination)));
+            }
+            for (ForkJoinTask<?> task : tasks)
+            {
+                task.join();
+            }
+        }
+        finally
+        {
+            // After a termination the other chunks stop at their own next check
+            pool.shutdownNow();
+        }
+
+        int[] vertexTriangles = new int[n];
+        for (int[] partial : partials)
+        {
+            for (int u = 0; u < n; u++)
+            {
+                vertexTriangles[u] += partial[u];
+            }
+        }
+
+        return vertexTriangles;
+    }
+
+    /**
+     * Find every triangle whose lowest-ranked vertex lies in {@code [from, to)}.
+     * Edge support is only written to the oriented slots.
+     */
+    private static void countRange(int[] outOffsets, IntArray outSlots, IntArray outTargets, int from, int to,
+                                   int[] vertexTriangles, EdgeSupport edgeTriangles, boolean concurrent,
+                                   Termination termination)
+    {
+        for (int u = from; u < to; u++)
+        {
+            if (((u - from) & 255) == 0)
+            {
+                termination.check();
+            }
+            for (int i = outOffsets[u]; i < outOffsets[u + 1]; i++)
+            {
+                int uv = outSlots.get(i);
+                int v = outTargets.get(i);
+
+                int aEnd = outOffsets[u + 1];
+                int bEnd = outOffsets[v + 1];
+                for (long match = SortedIntersection.next(outTargets, outOffsets[u], aEnd, outTargets, outOffsets[v], bEnd);
+                     match >= 0;
+                     match = SortedIntersection.next(outTargets, (int) (match >>> 32) + 1, aEnd, outTargets, (int) match + 1, bEnd))
+                {
+                    int a = (int) (match >>> 32);
+                    int b = (int) match;
+                    countTriangle(u, v, outTargets.get(a), uv, outSlots.get(a), outSlots.get(b),
+                        vertexTriangles, edgeTriangles, concurrent);
+                }
+            }
+        }
+    }
+
+    private static void countTriangle(int u, int v, int w, int uv, int uw, int vw,
+                                      int[] vertexTriangles, EdgeSupport edgeTriangles, boolean concurrent)
+    {
+        vertexTriangles[u]++;
+        vertexTriangles[v]++;
+        vertexTriangles[w]++;
+        edgeTriangles.incrementDirected(uv, concurrent);
+        edgeTriangles.incrementDirected(uw, concurrent);
+        edgeTriangles.incrementDirected(vw, concurrent);
+    }
+
+    /**
+     * @return  The number of common (non-removed) neighbours of {@code u} and {@code v}
+     */
+    public static int intersect(GraphProjection graph, int u, int v)
+    {
+        int small = shorter(graph, u, v);
+        int large = small == u ? v : u;
+        long[] bits = graph.hubNeighbors(large);
+        int count = 0;
+        if (bits == null)
+        {
+            for (long match = graph.nextCommon(u, graph.start(u), v, graph.start(v));
+                 match >= 0;
+                 match = graph.nextCommon(u, (int) (match >>> 32) + 1, v, (int) match + 1))
+            {
+                if (!graph.isRemoved((int) (match >>> 32)) && !graph.isRemoved((int) match))
+                {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        // The longer segment is a hub's: only seek the targets its bitset holds
+        int b = graph.start(large);
+        for (int a = graph.start(small); a < graph.end(small) && b < graph.end(large); a++)
+        {
+            int w = graph.target(a);
+            if (graph.isRemoved(a) || (bits[w >>> 6] & (1L << w)) == 0)
+            {
+                continue;
+            }
+            b = graph.seek(large, b, w);
+            if (b < graph.end(large) && graph.target(b) == w && !graph.isRemoved(b))
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Remove the edge between {@code u} and {@code v} from the graph and update
+     * the counts of every triangle it closed: the vertex counts of {@code u},
+     * {@code v} and each common neighbour {@code w}, and the edge counts of
+     * {@code (u, w)} and {@code (v, w)}. Costs O(deg(u) + deg(v)), or
+     * O(s log(l / s)) when one degree {@code s} is far below the other
+     * {@code l} (see {@link SortedIntersection}).
+     *
+     * @return  The number of triangles destroyed, or -1 if the edge was not present
+     */
+    public int removeEdge(int u, int v)
+    {
+        return removeEdge(u, v, null);
+    }
+
+    /**
+     * Like {@link #removeEdge(int, int)}, also reporting each destroyed triangle to {@code listener}.
+     */
+    public int removeEdge(int u, int v, RemovalListener listener)
+    {
+        int uv = graph.findSlot(u, v);
+        if (uv < 0 || graph.isRemoved(uv))
+        {
+            return -1;
+        }
+
+        int destroyed = 0;
+        int small = shorter(graph, u, v);
+        int large = small == u ? v : u;
+        long[] bits = graph.hubNeighbors(large);
+        if (bits == null)
+        {
+            for (long match = graph.nextCommon(u, graph.start(u), v, graph.start(v));
+                 match >= 0;
+                 match = graph.nextCommon(u, (int) (match >>> 32) + 1, v, (int) match + 1))
+            {
+                int a = (int) (match >>> 32);
+                int b = (int) match;
+                if (!graph.isRemoved(a) && !graph.isRemoved(b))
+                {
+                    destroyTriangle(graph.target(a), a, b, listener);
+                    destroyed++;
+                }
+            }
+        }
+        else
+        {
+            // The longer segment is a hub's: only seek the targets its bitset holds
+            int b = graph.start(large);
+            for (int a = graph.start(small); a < graph.end(small) && b < graph.end(large); a++)
+            {
+                int w = graph.target(a);
+                if (graph.isRemoved(a) || (bits[w >>> 6] & (1L << w)) == 0)
+                {
+                    continue;
+                }
+                b = graph.seek(large, b, w);
+                if (b < graph.end(large) && graph.target(b) == w && !graph.isRemoved(b))
+                {
+                    destroyTriangle(w, small == u ? a : b, small == u ? b : a, listener);
+                    destroyed++;
+                }
+            }
+        }
+
+        vertexTriangles[u] -= destroyed;
+        vertexTriangles[v] -= destroyed;
+        edgeTriangles.clear(uv);
+        graph.removeEdge(u, v);
+
+        return destroyed;
+    }
+
+    private void destroyTriangle(int w, int uw, int vw, RemovalListener listener)
+    {
+        vertexTriangles[w]--;
+        edgeTriangles.decrement(uw);
+        edgeTriangles.decrement(vw);
+        if (listener != null)
+        {
+            listener.triangleRemoved(w, uw, vw);
+        }
+    }
+
+    /**
+     * @param graph  A copy of this counter's projection, see {@link GraphProjection#copy()}
+     * @return  The same counts, for {@code graph}; removing edges from either leaves the other untouched
+     */
+    public TriangleCounter copy(GraphProjection graph)
+    {
+        return new TriangleCounter(graph, vertexTriangles.clone(), edgeTriangles.copy(graph));
+    }
+
+    public GraphProjection graph()
+    {
+        return graph;
+    }
+
+    /**
+     * Histogram of the vertex counts up to the largest count, built in one pass.
+     *
+     * @return  {@code h} where {@code h[i]} is the number of vertices with exactly {@code i} triangles
+     */
+    public long[] histogram()
+    {
+        int max = 0;
+        for (int count : vertexTriangles)
+        {
+            max = Math.max(max, count);
+        }
+        return histogram(max);
+    }
+
+    /**
+     * Histogram of the vertex counts in one pass; vertices with more than
+     * {@code maxCount} triangles are left out.
+     *
+     * @return  {@code h} of length {@code maxCount + 1} where {@code h[i]} is the number of vertices with exactly {@code i} triangles
+     */
+    public long[] histogram(int maxCount)
+    {
+        long[] buckets = new long[maxCount + 1];
+        for (int count : vertexTriangles)
+        {
+            if (count <= maxCount)
+            {
+                buckets[count]++;
+            }
+        }
+        return buckets;
+    }
+
+    public int[] vertexTriangles()
+    {
+        return vertexTriangles;
+    }
+
+    public int vertexTriangles(int u)
+    {
+        return vertexTriangles[u];
+    }
+
+    public EdgeSupport edgeTriangles()
+    {
+        return edgeTriangles;
+    }
+
+    /**
+     * @return  Whichever of {@code u} and {@code v} has the shorter segment, {@code u} on a tie
+     */
+    private static int shorter(GraphProjection graph, int u, int v)
+    {
+        return graph.end(u) - graph.start(u) <= graph.end(v) - graph.start(v) ? u : v;
+    }
+
+    private static boolean outranks(GraphProjection graph, int v, int u)
+    {
+        int dv = graph.degree(v);
+        int du = graph.degree(u);
+        return dv > du || (dv == du && v > u);
+    }
+
+}
@@ -0,0 +1,166 @@
+package example;
+
+import java.util.SplittableRandom;
+
+/**
+ * Approximate triangle counting by edge sparsification (DOULION, Tsourakakis
+ * et al., 2009).
+ * <p>
+ * Every edge is kept independently with probability {@code p} and the
+ * triangles of the sparsified graph are counted exactly. A triangle survives
+ * with probability {@code p^3}, so scaling by {@code 1 / p^3} gives unbiased
+ * estimates of the total and of every vertex count. The variance of the total
+ * is {@code T (1/p^3 - 1) + 2 K (1/p - 1)}, where {@code K} is the number of
+ * pairs of triangles sharing an edge; both terms are estimated from the
+ * sample itself, which gives a normal-approximation confidence interval.
+ */
+public class TriangleEstimator {
+
+    private final TriangleCounter counter;
+    private final double sampleRate;
+    private final long sampledEdges;
+    private final double triangles;
+    private final double variance;
+
+    private TriangleEstimator(TriangleCounter counter, double sampleRate, long sampledEdges, double triangles, double variance)
+    {
+        this.counter = counter;
+        this.sampleRate = sampleRate;
+        this.sampledEdges = sampledEdges;
+        this.triangles = triangles;
+        this.variance = variance;
+    }
+
+    /**
+     * Sparsify {@code graph} in place and count the triangles of the sample.
+     *
+     * @param sampleRate  The probability of keeping an edge, in (0, 1]
+     * @param seed  Seed of the edge sampling
+     * @param concurrency  The number of threads to count with
+     */
+    public static TriangleEstimator estimate(GraphProjection graph, double sampleRate, long seed, int concurrency)
+    {
+        return estimate(graph, sampleRate, seed, concurrency, Termination.NONE);
+    }
+
+    /**
+     * Like {@link #estimate(GraphProjection, double, long, int)}, checking
+     * {@code termination} while sampling and counting.
+     */
+    public static TriangleEstimator estimate(GraphProjection graph, double sampleRate, long seed, int concurrency,
+                                             Termination termination)
+    {
+        if (!(sampleRate > 0 && sampleRate <= 1))
+        {
+            throw new IllegalArgumentException("sampleRate must be in (0, 1], got " + sampleRate);
+        }
+
+        // Edges are visited in slot order, so the same seed keeps the same edges
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int u = 0; u < graph.nodeCount(); u++)
+        {
+            if ((u & 4095) == 0)
+            {
+                termination.check();
+            }
+            for (int slot = graph.start(u); slot < graph.end(u); slot++)
+            {
+                int v = graph.target(slot);
+                if (v > u && !graph.isRemoved(slot) && random.nextDouble() >= sampleRate)
+                {
+                    graph.removeEdge(u, v);
+                }
+            }
+        }
+
+        TriangleCounter counter = TriangleCounter.count(graph, concurrency, termination);
+
+        long sampledTriangles = 0;
+        for (int count : counter.vertexTriangles())
+        {
+            sampledTriangles += count;
+        }
+        sampledTriangles /= 3;
+
+        long sharedPairs = 0;
+        EdgeSupport support = counter.edgeTriangles();
+        for (int u = 0; u < graph.nodeCount(); u++)
+        {
+            for (int slot = graph.start(u); slot < graph.end(u); slot++)
+            {
+                if (graph.target(slot) > u && !graph.isRemoved(slot))
+                {
+                    long s = support.get(slot);
+                    sharedPairs += s * (s - 1) / 2;
+                }
+            }
+        }
+
+        double p = sampleRate;
+        double triangles = sampledTriangles / (p * p * p);
+        // A pair of triangles sharing an edge survives with probability p^5
+        double pairs = sharedPairs / (p * p * p * p * p);
+        double variance = triangles * (1 / (p * p * p) - 1) + 2 * pairs * (1 / p - 1);
+
+        return new TriangleEstimator(counter, sampleRate, graph.edgeCount(), triangles, variance);
+    }
+
+    /**
+     * @return  The estimated number of triangles in the whole graph
+     */
+    public double triangles()
+    {
+        return triangles;
+    }
+
+    public double standardError()
+    {
+        return Math.sqrt(variance);
+    }
+
+    /**
+     * @param z  The standard normal quantile, e.g. 1.96 for a 95% interval
+     * @return  The lower end of the confidence interval, never below 0
+     */
+    public double lowerBound(double z)
+    {
+        return Math.max(0, triangles - z * standardError());
+    }
+
+    public double upperBound(double z)
+    {
+        return triangles + z * standardError();
+    }
+
+    public double sampleRate()
+    {
+        return sampleRate;
+    }
+
+    public long sampledEdges()
+    {
+        return sampledEdges;
+    }
+
+    /**
+     * @return  The estimated triangle count of vertex {@code u}
+     */
+    public double vertexTriangles(int u)
+    {
+        return counter.vertexTriangles(u) / (sampleRate * sampleRate * sampleRate);
+    }
+
+    /**
+     * Histogram of the rounded per-vertex estimates; estimates above
+     * {@code maxCount} go to the last bucket.
+     */
+    public long[] histogram(int maxCount)
+    {
+        long[] buckets = new long[maxCount + 1];
+        for (int u = 0; u < counter.graph().nodeCount(); u++)
+        {
+            buckets[(int) Math.min(maxCount, Math.round(vertexTriangles(u)))]++;
+        }
+        return buckets;
+    }
+}
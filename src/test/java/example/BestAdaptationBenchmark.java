@@ -0,0 +1,49 @@
+package example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full Best Adaptation (initial count plus truncation) on synthetic graphs,
+ * across lambda values. Run with {@code mvn -Pbenchmark test}; see the README.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BestAdaptationBenchmark {
+
+    @Param({"ERDOS_RENYI", "POWER_LAW", "RMAT"})
+    public SyntheticGraph.Model model;
+
+    @Param({"10000", "100000", "1000000"})
+    public int edges;
+
+    @Param({"1", "10", "100"})
+    public int lambda;
+
+    private SyntheticGraph edgeList;
+    private GraphProjection graph;
+
+    @Setup(Level.Trial)
+    public void generate()
+    {
+        edgeList = SyntheticGraph.generate(model, edges, 42L);
+    }
+
+    // Truncation deletes edges, so every run needs a fresh projection
+    @Setup(Level.Invocation)
+    public void project()
+    {
+        graph = edgeList.toProjection();
+    }
+
+    @Benchmark
+    public TriangleCounter truncate()
+    {
+        return BestAdaptation.truncate(graph, lambda, 1);
+    }
+}
@@ -0,0 +1,109 @@
+package example;
+
+import org.junit.jupiter.api.*;
+import org.neo4j.graphdb.TransactionTerminatedException;
+import org.neo4j.kernel.api.exceptions.Status;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BestAdaptationTests {
+
+    @Test
+    public void parallelTruncationKeepsUpOnAHubGraph() {
+        int n = 40000;
+        int lambda = 2;
+
+        GraphProjection graph = starWithSpokes(n);
+        TriangleCounter counter = TriangleCounter.count(graph);
+        long start = System.nanoTime();
+        new BestAdaptation(counter, lambda).run();
+        long sequential = System.nanoTime() - start;
+        assertBounded(counter, lambda);
+
+        // Every spoke shares the hub, so rounds can only take one spoke each
+        graph = starWithSpokes(n);
+        counter = TriangleCounter.count(graph);
+        start = System.nanoTime();
+        new BestAdaptation(counter, lambda).runParallel(2, 42L);
+        long parallel = System.nanoTime() - start;
+        assertBounded(counter, lambda);
+
+        assertThat(parallel / 1000000).as("parallel ms, sequential took %d ms", sequential / 1000000)
+            .isLessThan(Math.max(2000, 10 * sequential / 1000000));
+    }
+
+    @Test
+    public void resumedRunsDeleteWhatAnUninterruptedRunDeletes() {
+        int lambda = 5;
+        GraphProjection graph = SyntheticGraph.generate(SyntheticGraph.Model.POWER_LAW, 20000, 42L).toProjection();
+        TriangleCounter uninterrupted = TriangleCounter.count(graph);
+        new BestAdaptation(uninterrupted, lambda).run();
+
+        graph = SyntheticGraph.generate(SyntheticGraph.Model.POWER_LAW, 20000, 42L).toProjection();
+        TriangleCounter counter = TriangleCounter.count(graph);
+        int next = 0;
+        int interruptions = 0;
+        int midVertex = 0;
+        while (next < graph.nodeCount()) {
+            int[] checks = {0};
+            Termination termination = Termination.of(() -> {
+                if (++checks[0] > 3) {
+                    throw new TransactionTerminatedException(Status.Transaction.Terminated);
+                }
+            }, 0);
+            BestAdaptation run = new BestAdaptation(counter, lambda, null, termination);
+            int deleted = deletedAround(graph, next);
+            try {
+                run.run(next);
+            } catch (TransactionTerminatedException e) {
+                interruptions++;
+                if (run.next() == next && deletedAround(graph, next) > deleted) {
+                    midVertex++;
+                }
+            }
+            next = run.next();
+        }
+
+        assertThat(interruptions).isGreaterThan(0);
+        // Some runs stopped between two deletions around the same vertex, and the next run picked it up again
+        assertThat(midVertex).isGreaterThan(0);
+        assertThat(counter.vertexTriangles()).isEqualTo(uninterrupted.vertexTriangles());
+        for (int slot = 0; slot < graph.slotCount(); slot++) {
+            assertThat(graph.isRemoved(slot)).as("slot %d", slot).isEqualTo(uninterrupted.graph().isRemoved(slot));
+        }
+    }
+
+    private static int deletedAround(GraphProjection graph, int u) {
+        int deleted = 0;
+        for (int slot = graph.start(u); slot < graph.end(u); slot++) {
+            if (graph.isRemoved(slot)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * A hub joined to spokes 1..n, each spoke joined to the next three around the rim.
+     */
+    private static GraphProjection starWithSpokes(int n) {
+        int[] sources = new int[4 * n];
+        int[] targets = new int[4 * n];
+        int edges = 0;
+        for (int i = 1; i <= n; i++) {
+            sources[edges] = 0;
+            targets[edges++] = i;
+            for (int d = 1; d <= 3; d++) {
+                sources[edges] = i;
+                targets[edges++] = 1 + (i - 1 + d) % n;
+            }
+        }
+        return GraphProjection.fromEdges(n + 1, sources, targets, edges);
+    }
+
+    private static void assertBounded(TriangleCounter counter, int lambda) {
+        assertThat(Arrays.stream(counter.vertexTriangles()).max().getAsInt()).isLessThanOrEqualTo(lambda);
+    }
+}
@@ -0,0 +1,100 @@
+package example;
+
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NeighborQueueTests {
+
+    @Test
+    public void tiesGoToTheLowestNeighbor() {
+        // 0 is joined to 1..4, and 1-2 and 3-4 close one triangle each
+        GraphProjection graph = GraphProjection.fromEdges(5, new int[]{0, 0, 0, 0, 1, 3}, new int[]{1, 2, 3, 4, 2, 4}, 6);
+        TriangleCounter counter = TriangleCounter.count(graph);
+        NeighborQueue queue = new NeighborQueue(counter, graph, 0);
+
+        assertThat(queue.maxNeighbor()).isEqualTo(1);
+        assertThat(queue.closestSupport(1)).isEqualTo(1);
+
+        queue.remove(1);
+        counter.removeEdge(0, 1, queue);
+
+        assertThat(queue.maxNeighbor()).isEqualTo(3);
+        assertThat(queue.closestSupport(0)).isEqualTo(2);
+        assertThat(queue.closestSupport(5)).isEqualTo(3);
+    }
+
+    @Test
+    public void queueMatchesALinearScanUnderRandomDeletions() {
+        for (SyntheticGraph.Model model : SyntheticGraph.Model.values()) {
+            GraphProjection graph = SyntheticGraph.generate(model, 20000, 42L).toProjection();
+            TriangleCounter counter = TriangleCounter.count(graph);
+            SplittableRandom random = new SplittableRandom(7);
+
+            // The highest degree vertices, so their segments hold many ties
+            Integer[] owners = new Integer[graph.nodeCount()];
+            Arrays.setAll(owners, u -> u);
+            Arrays.sort(owners, Comparator.comparingInt(u -> -(graph.end(u) - graph.start(u))));
+
+            NeighborQueue queue = new NeighborQueue(counter, graph, owners[0]);
+            for (int o = 0; o < 10; o++) {
+                int owner = owners[o];
+                queue.reset(owner);
+                while (true) {
+                    assertMatchesScan(queue, counter, graph, owner, random);
+                    List<Integer> neighbors = liveNeighbors(graph, owner);
+                    if (neighbors.isEmpty()) {
+                        break;
+                    }
+                    int neighbor = neighbors.get(random.nextInt(neighbors.size()));
+                    queue.remove(neighbor);
+                    counter.removeEdge(owner, neighbor, queue);
+                }
+            }
+        }
+    }
+
+    private static void assertMatchesScan(NeighborQueue queue, TriangleCounter counter, GraphProjection graph, int owner, SplittableRandom random) {
+        int maxNeighbor = -1;
+        int maxTriangles = -1;
+        int maxSupport = 0;
+        for (int slot = graph.start(owner); slot < graph.end(owner); slot++) {
+            if (graph.isRemoved(slot)) {
+                continue;
+            }
+            int neighbor = graph.target(slot);
+            if (counter.vertexTriangles(neighbor) > maxTriangles) {
+                maxTriangles = counter.vertexTriangles(neighbor);
+                maxNeighbor = neighbor;
+            }
+            maxSupport = Math.max(maxSupport, counter.edgeTriangles().get(slot));
+        }
+        assertThat(queue.maxNeighbor()).as("maxNeighbor of %d", owner).isEqualTo(maxNeighbor);
+
+        for (int i = 0; i < 4; i++) {
+            int target = random.nextInt(maxSupport + 2);
+            int closest = -1;
+            int closestDiff = Integer.MAX_VALUE;
+            for (int slot = graph.start(owner); slot < graph.end(owner); slot++) {
+                int diff = Math.abs(counter.edgeTriangles().get(slot) - target);
+                if (!graph.isRemoved(slot) && diff < closestDiff) {
+                    closestDiff = diff;
+                    closest = graph.target(slot);
+                }
+            }
+            assertThat(queue.closestSupport(target)).as("closestSupport(%d) of %d", target, owner).isEqualTo(closest);
+        }
+    }
+
+    private static List<Integer> liveNeighbors(GraphProjection graph, int owner) {
+        List<Integer> neighbors = new ArrayList<>();
+        for (int slot = graph.start(owner); slot < graph.end(owner); slot++) {
+            if (!graph.isRemoved(slot)) {
+                neighbors.add(graph.target(slot));
+            }
+        }
+        return neighbors;
+    }
+}
@@ -0,0 +1,153 @@
+package example;
+
+import org.junit.jupiter.api.*;
+import org.neo4j.driver.*;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventListener;
+import org.neo4j.graphdb.event.TransactionEventListenerAdapter;
+import org.neo4j.harness.Neo4j;
+import org.neo4j.harness.Neo4jBuilders;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ProjectionCacheTests {
+
+    private static final Config driverConfig = Config.builder().withoutEncryption().build();
+    private Neo4j embeddedDatabaseServer;
+
+    @BeforeAll
+    void initializeNeo4j() throws IOException {
+        var sw = new StringWriter();
+        try (var in = new BufferedReader(new InputStreamReader(getClass().getResourceAsStream("/zachary.cypher")))) {
+            in.transferTo(sw);
+            sw.flush();
+        }
+
+        this.embeddedDatabaseServer = Neo4jBuilders.newInProcessBuilder()
+            .withProcedure(TriangleCount.class)
+            .withProcedure(TriangleCountSecure.class)
+            .withFixture(sw.toString())
+            .build();
+    }
+
+    @AfterAll
+    void closeNeo4j() {
+        this.embeddedDatabaseServer.close();
+    }
+
+    @Test
+    public void relationshipChangesInvalidateTheCache() {
+        try(
+                Driver driver = GraphDatabase.driver(embeddedDatabaseServer.boltURI(), driverConfig);
+                Session session = driver.session()
+            ) {
+
+                String sumQuery = "CALL example.triangleCount() YIELD triangleCount RETURN sum(triangleCount) AS total";
+                assertThat(session.run(sumQuery).single().get("total").asLong()).isEqualTo(3 * 45);
+
+                // Truncating a cached copy must leave the cached counts untouched
+                session.run("CALL example.triangleCountSecureVirtual(1)").consume();
+                assertThat(session.run(sumQuery).single().get("total").asLong()).isEqualTo(3 * 45);
+
+                // Delete one relationship that closes a triangle
+                session.run("MATCH (a:Person)-[r]-(b:Person), (a)--(c:Person)--(b) WITH r LIMIT 1 DELETE r").consume();
+                assertThat(session.run(sumQuery).single().get("total").asLong()).isLessThan(3 * 45);
+        }
+    }
+
+    @Test
+    public void graphChangesDiscardCheckpoints() {
+        GraphDatabaseService db = embeddedDatabaseServer.defaultDatabaseService();
+        // A label of its own, so the Person graph the other tests count stays as it is
+        db.executeTransactionally("CREATE (a:Checkpointed), (b:Checkpointed), (c:Checkpointed), (d:Checkpointed), " +
+            "(a)-[:KNOWS]->(b), (b)-[:KNOWS]->(c), (c)-[:KNOWS]->(a), (c)-[:KNOWS]->(d)");
+        GraphScope scope = GraphScope.of("Checkpointed", List.of(), "BOTH");
+
+        long generation = ProjectionCache.generation(db);
+        ProjectionCache.checkpoint(db, scope, 0, ProjectionCache.counts(db, scope, false, 1), 2, generation);
+        ProjectionCache.Checkpoint checkpoint = ProjectionCache.resume(db, scope, 0, false);
+        assertThat(checkpoint).isNotNull();
+        assertThat(checkpoint.next).isEqualTo(2);
+
+        generation = ProjectionCache.generation(db);
+        ProjectionCache.checkpoint(db, scope, 0, ProjectionCache.counts(db, scope, false, 1), 2, generation);
+        db.executeTransactionally("MATCH (a:Checkpointed)-[:KNOWS]->(b:Checkpointed)-[:KNOWS]->(c:Checkpointed) " +
+            "WHERE NOT (c)--(a) CREATE (c)-[:KNOWS]->(a)");
+        assertThat(ProjectionCache.resume(db, scope, 0, false)).isNull();
+    }
+
+    @Test
+    public void loadsOverlappingACommitAreNotCached() throws Exception {
+        GraphDatabaseService db = embeddedDatabaseServer.defaultDatabaseService();
+        db.executeTransactionally("CREATE (a:Raced {id: 0}), (b:Raced {id: 1}), (c:Raced {id: 2}), " +
+            "(a)-[:KNOWS]->(b), (b)-[:KNOWS]->(c)");
+        GraphScope scope = GraphScope.of("Raced", List.of(), "BOTH");
+
+        // Registers the cache's own listener first, so the one below runs after it has seen the commit
+        ProjectionCache.generation(db);
+        CountDownLatch checked = new CountDownLatch(1);
+        CountDownLatch loaded = new CountDownLatch(1);
+        TransactionEventListener<Object> pause = new TransactionEventListenerAdapter<>() {
+            @Override
+            public Object beforeCommit(TransactionData data, Transaction transaction, GraphDatabaseService db) throws Exception {
+                if (data.createdRelationships().iterator().hasNext()) {
+                    checked.countDown();
+                    loaded.await();
+                }
+                return null;
+            }
+        };
+        embeddedDatabaseServer.databaseManagementService().registerTransactionEventListener(db.databaseName(), pause);
+        try {
+            // Closes the triangle, and commits only once the load below has finished
+            Thread commit = new Thread(() -> db.executeTransactionally(
+                "MATCH (a:Raced {id: 0}), (c:Raced {id: 2}) CREATE (c)-[:KNOWS]->(a)"));
+            commit.start();
+            checked.await();
+            assertThat(total(ProjectionCache.counts(db, scope, false, 1))).isEqualTo(0L);
+            loaded.countDown();
+            commit.join();
+        } finally {
+            embeddedDatabaseServer.databaseManagementService().unregisterTransactionEventListener(db.databaseName(), pause);
+        }
+
+        assertThat(total(ProjectionCache.counts(db, scope, false, 1))).isEqualTo(3L);
+    }
+
+    private static long total(TriangleCounter counter) {
+        return Arrays.stream(counter.vertexTriangles()).asLongStream().sum();
+    }
+
+    @Test
+    public void databasesOfTheSameNameInAnotherDbmsAreCachedSeparately() {
+        String sumQuery = "CALL example.triangleCount() YIELD triangleCount RETURN sum(triangleCount) AS total";
+        try(
+                Neo4j otherServer = Neo4jBuilders.newInProcessBuilder()
+                    .withProcedure(TriangleCount.class)
+                    .withFixture("CREATE (a:Person), (b:Person), (c:Person), (a)-[:KNOWS]->(b), (b)-[:KNOWS]->(c), (c)-[:KNOWS]->(a)")
+                    .build();
+                Driver driver = GraphDatabase.driver(embeddedDatabaseServer.boltURI(), driverConfig);
+                Session session = driver.session();
+                Driver otherDriver = GraphDatabase.driver(otherServer.boltURI(), driverConfig);
+                Session otherSession = otherDriver.session()
+            ) {
+
+                long total = session.run(sumQuery).single().get("total").asLong();
+
+                // Both DBMSs call their default database "neo4j"
+                assertThat(otherSession.run(sumQuery).single().get("total").asLong()).isEqualTo(3L);
+                assertThat(session.run(sumQuery).single().get("total").asLong()).isEqualTo(total);
+        }
+    }
+}
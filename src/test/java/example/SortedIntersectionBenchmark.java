@@ -0,0 +1,167 @@
+package example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each strategy of the intersection kernel on its own, against a plain
+ * branching merge, on pairs of sorted lists whose lengths differ by
+ * {@code ratio}. {@link SortedIntersection#next} merges up to
+ * {@link SortedIntersection#GALLOP_RATIO} and gallops beyond it, so
+ * {@code merge} and {@code branchingMerge} compare the merge step on lists
+ * of similar length, {@code gallop} shows what galloping saves on skewed
+ * ones, and {@code kernel} the choice between them. Run with
+ * {@code mvn -Pbenchmark test}; see the README.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SortedIntersectionBenchmark {
+
+    /**
+     * Values held by the long lists of all pairs together, so every case
+     * does a similar amount of work.
+     */
+    private static final int LONG_VALUES = 1 << 22;
+
+    @Param({"64", "1024"})
+    public int shortLength;
+
+    @Param({"1", "4", "64", "256"})
+    public int ratio;
+
+    private int pairs;
+    private IntArray shorter;
+    private IntArray longer;
+    private int[] shortStarts;
+    private int[] longStarts;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        SplittableRandom random = new SplittableRandom(42L);
+        int longLength = shortLength * ratio;
+        pairs = Math.max(1, LONG_VALUES / longLength);
+        // Values drawn from twice the long length, so about half of the short list matches
+        int[] shortValues = new int[pairs * shortLength];
+        int[] longValues = new int[pairs * longLength];
+        shortStarts = new int[pairs + 1];
+        longStarts = new int[pairs + 1];
+        for (int p = 0; p < pairs; p++)
+        {
+            shortStarts[p + 1] = fill(shortValues, shortStarts[p], shortLength, 2 * longLength, random);
+            longStarts[p + 1] = fill(longValues, longStarts[p], longLength, 2 * longLength, random);
+        }
+        shorter = IntArray.wrap(shortValues);
+        longer = IntArray.wrap(longValues);
+    }
+
+    /**
+     * Write {@code length} distinct values below {@code bound} in ascending order from {@code from}.
+     */
+    private static int fill(int[] values, int from, int length, int bound, SplittableRandom random)
+    {
+        int remaining = length;
+        for (int value = 0; value < bound && remaining > 0; value++)
+        {
+            if (random.nextInt(bound - value) < remaining)
+            {
+                values[from + length - remaining] = value;
+                remaining--;
+            }
+        }
+        return from + length;
+    }
+
+    @Benchmark
+    public long kernel()
+    {
+        long common = 0;
+        for (int p = 0; p < pairs; p++)
+        {
+            int xEnd = shortStarts[p + 1];
+            int yEnd = longStarts[p + 1];
+            for (long match = SortedIntersection.next(shorter, shortStarts[p], xEnd, longer, longStarts[p], yEnd);
+                 match >= 0;
+                 match = SortedIntersection.next(shorter, (int) (match >>> 32) + 1, xEnd, longer, (int) match + 1, yEnd))
+            {
+                common++;
+            }
+        }
+        return common;
+    }
+
+    @Benchmark
+    public long merge()
+    {
+        long common = 0;
+        for (int p = 0; p < pairs; p++)
+        {
+            int xEnd = shortStarts[p + 1];
+            int yEnd = longStarts[p + 1];
+            for (long match = SortedIntersection.merge(shorter, shortStarts[p], xEnd, longer, longStarts[p], yEnd);
+                 match >= 0;
+                 match = SortedIntersection.merge(shorter, (int) (match >>> 32) + 1, xEnd, longer, (int) match + 1, yEnd))
+            {
+                common++;
+            }
+        }
+        return common;
+    }
+
+    @Benchmark
+    public long gallop()
+    {
+        long common = 0;
+        for (int p = 0; p < pairs; p++)
+        {
+            int xEnd = shortStarts[p + 1];
+            int yEnd = longStarts[p + 1];
+            for (long match = SortedIntersection.gallop(shorter, shortStarts[p], xEnd, longer, longStarts[p], yEnd);
+                 match >= 0;
+                 match = SortedIntersection.gallop(shorter, (int) (match >>> 32) + 1, xEnd, longer, (int) match + 1, yEnd))
+            {
+                common++;
+            }
+        }
+        return common;
+    }
+
+    @Benchmark
+    public long branchingMerge()
+    {
+        long common = 0;
+        for (int p = 0; p < pairs; p++)
+        {
+            int a = shortStarts[p];
+            int b = longStarts[p];
+            int aEnd = shortStarts[p + 1];
+            int bEnd = longStarts[p + 1];
+            while (a < aEnd && b < bEnd)
+            {
+                int wa = shorter.get(a);
+                int wb = longer.get(b);
+                if (wa < wb)
+                {
+                    a++;
+                }
+                else if (wa > wb)
+                {
+                    b++;
+                }
+                else
+                {
+                    common++;
+                    a++;
+                    b++;
+                }
+            }
+        }
+        return common;
+    }
+}
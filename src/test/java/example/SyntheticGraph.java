@@ -0,0 +1,220 @@
+package example;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.Transaction;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic, seeded random graphs as plain edge lists, for benchmarks and
+ * scaling tests. The same model, size and seed always give the same edges.
+ * {@link #loadInto(GraphDatabaseService, int)} bulk-loads a graph as
+ * {@code Person} nodes so the procedures can be run on it.
+ */
+public class SyntheticGraph {
+
+    public enum Model {
+        /** G(n, m): every edge joins two uniformly random nodes */
+        ERDOS_RENYI,
+        /** Chung-Lu graph with a power-law expected degree sequence (exponent 2.5) */
+        POWER_LAW,
+        /** Recursive matrix graph with the Graph500 quadrant probabilities */
+        RMAT,
+        /** G(n, m) with one clique of about sqrt(m / 10) nodes planted in it */
+        PLANTED_CLIQUE
+    }
+
+    static final Label PERSON = Label.label("Person");
+    static final RelationshipType FRIENDS_WITH = RelationshipType.withName("FRIENDS_WITH");
+
+    public final int nodeCount;
+    public final int edgeCount;
+    public final int[] sources;
+    public final int[] targets;
+
+    private SyntheticGraph(int nodeCount, int edgeCount, int[] sources, int[] targets)
+    {
+        this.nodeCount = nodeCount;
+        this.edgeCount = edgeCount;
+        this.sources = sources;
+        this.targets = targets;
+    }
+
+    /**
+     * Generate {@code edges} edges with an average degree of about 10. Edges
+     * may repeat or be self loops; projections drop those.
+     */
+    public static SyntheticGraph generate(Model model, int edges, long seed)
+    {
+        SplittableRandom random = new SplittableRandom(seed);
+        switch (model)
+        {
+            case ERDOS_RENYI:
+                return erdosRenyi(Math.max(2, edges / 5), edges, random);
+            case POWER_LAW:
+                return powerLaw(Math.max(2, edges / 5), edges, 2.5, random);
+            case RMAT:
+                int scale = Math.max(1, 32 - Integer.numberOfLeadingZeros(Math.max(1, edges / 5 - 1)));
+                return rmat(scale, edges, 0.57, 0.19, 0.19, random);
+            case PLANTED_CLIQUE:
+                return plantedClique(Math.max(2, edges / 5), edges, random);
+            default:
+                throw new IllegalArgumentException("Unknown model " + model);
+        }
+    }
+
+    public GraphProjection toProjection()
+    {
+        return GraphProjection.fromEdges(nodeCount, sources, targets, edgeCount);
+    }
+
+    /**
+     * Create one {@code Person} node per node and one {@code FRIENDS_WITH}
+     * relationship per edge, committing every {@code batchSize} operations.
+     *
+     * @return  The Neo4j id of every node, by index
+     */
+    public long[] loadInto(GraphDatabaseService db, int batchSize)
+    {
+        long[] nodeIds = new long[nodeCount];
+        for (int from = 0; from < nodeCount; from += batchSize)
+        {
+            try (Transaction tx = db.beginTx())
+            {
+                for (int u = from; u < Math.min(from + batchSize, nodeCount); u++)
+                {
+                    nodeIds[u] = tx.createNode(PERSON).getId();
+                }
+                tx.commit();
+            }
+        }
+
+        for (int from = 0; from < edgeCount; from += batchSize)
+        {
+            try (Transaction tx = db.beginTx())
+            {
+                for (int e = from; e < Math.min(from + batchSize, edgeCount); e++)
+                {
+                    Node source = tx.getNodeById(nodeIds[sources[e]]);
+                    source.createRelationshipTo(tx.getNodeById(nodeIds[targets[e]]), FRIENDS_WITH);
+                }
+                tx.commit();
+            }
+        }
+
+        return nodeIds;
+    }
+
+    private static SyntheticGraph erdosRenyi(int n, int m, SplittableRandom random)
+    {
+        int[] sources = new int[m];
+        int[] targets = new int[m];
+        for (int e = 0; e < m; e++)
+        {
+            sources[e] = random.nextInt(n);
+            targets[e] = random.nextInt(n);
+        }
+        return new SyntheticGraph(n, m, sources, targets);
+    }
+
+    private static SyntheticGraph plantedClique(int n, int m, SplittableRandom random)
+    {
+        int k = Math.min(n, Math.max(3, (int) Math.sqrt(m / 10.0)));
+        int cliqueEdges = k * (k - 1) / 2;
+
+        // A random k-subset of the nodes (partial Fisher-Yates shuffle)
+        int[] nodes = new int[n];
+        for (int i = 0; i < n; i++)
+        {
+            nodes[i] = i;
+        }
+        for (int i = 0; i < k; i++)
+        {
+            int j = i + random.nextInt(n - i);
+            int swap = nodes[i];
+            nodes[i] = nodes[j];
+            nodes[j] = swap;
+        }
+
+        SyntheticGraph base = erdosRenyi(n, Math.max(0, m - cliqueEdges), random);
+        int[] sources = Arrays.copyOf(base.sources, base.edgeCount + cliqueEdges);
+        int[] targets = Arrays.copyOf(base.targets, base.edgeCount + cliqueEdges);
+        int e = base.edgeCount;
+        for (int i = 0; i < k; i++)
+        {
+            for (int j = i + 1; j < k; j++)
+            {
+                sources[e] = nodes[i];
+                targets[e] = nodes[j];
+                e++;
+            }
+        }
+        return new SyntheticGraph(n, e, sources, targets);
+    }
+
+    private static SyntheticGraph powerLaw(int n, int m, double exponent, SplittableRandom random)
+    {
+        // Node i gets weight (i + 1)^(-1 / (exponent - 1)); endpoints are drawn
+        // proportionally to weight from the cumulative distribution.
+        double[] cumulative = new double[n];
+        double total = 0;
+        for (int i = 0; i < n; i++)
+        {
+            total += Math.pow(i + 1, -1.0 / (exponent - 1));
+            cumulative[i] = total;
+        }
+
+        int[] sources = new int[m];
+        int[] targets = new int[m];
+        for (int e = 0; e < m; e++)
+        {
+            sources[e] = pick(cumulative, random.nextDouble() * total);
+            targets[e] = pick(cumulative, random.nextDouble() * total);
+        }
+        return new SyntheticGraph(n, m, sources, targets);
+    }
+
+    private static int pick(double[] cumulative, double value)
+    {
+        int i = Arrays.binarySearch(cumulative, value);
+        return Math.min(cumulative.length - 1, i < 0 ? -i - 1 : i);
+    }
+
+    private static SyntheticGraph rmat(int scale, int m, double a, double b, double c, SplittableRandom random)
+    {
+        int[] sources = new int[m];
+        int[] targets = new int[m];
+        for (int e = 0; e < m; e++)
+        {
+            int u = 0;
+            int v = 0;
+            for (int bit = 0; bit < scale; bit++)
+            {
+                double r = random.nextDouble();
+                u <<= 1;
+                v <<= 1;
+                // Quadrant a keeps both bits at 0
+                if (r >= a + b + c)
+                {
+                    u |= 1;
+                    v |= 1;
+                }
+                else if (r >= a + b)
+                {
+                    u |= 1;
+                }
+                else if (r >= a)
+                {
+                    v |= 1;
+                }
+            }
+            sources[e] = u;
+            targets[e] = v;
+        }
+        return new SyntheticGraph(1 << scale, m, sources, targets);
+    }
+}
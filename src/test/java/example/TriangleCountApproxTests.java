@@ -0,0 +1,117 @@
+package example;
+
+import org.junit.jupiter.api.*;
+import org.neo4j.driver.*;
+import org.neo4j.harness.Neo4j;
+import org.neo4j.harness.Neo4jBuilders;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class TriangleCountApproxTests {
+
+    private static final Config driverConfig = Config.builder().withoutEncryption().build();
+    private Neo4j embeddedDatabaseServer;
+
+    @BeforeAll
+    void initializeNeo4j() throws IOException {
+        var sw = new StringWriter();
+        try (var in = new BufferedReader(new InputStreamReader(getClass().getResourceAsStream("/zachary.cypher")))) {
+            in.transferTo(sw);
+            sw.flush();
+        }
+
+        this.embeddedDatabaseServer = Neo4jBuilders.newInProcessBuilder()
+            .withProcedure(TriangleCountApprox.class)
+            .withFixture(sw.toString())
+            .build();
+    }
+
+    @AfterAll
+    void closeNeo4j() {
+        this.embeddedDatabaseServer.close();
+    }
+
+    @Test
+    public void fullSampleIsExact() {
+        try(
+                Driver driver = GraphDatabase.driver(embeddedDatabaseServer.boltURI(), driverConfig);
+                Session session = driver.session()
+            ) {
+
+                Record record = session.run("CALL example.triangleCountApprox(1.0)").single();
+
+                assertThat(record.get("triangles").asDouble()).isEqualTo(45.0);
+                assertThat(record.get("lowerBound").asDouble()).isEqualTo(45.0);
+                assertThat(record.get("upperBound").asDouble()).isEqualTo(45.0);
+        }
+    }
+
+    @Test
+    public void spilledSampleWithATimeoutIsExact() throws IOException {
+        Path spillDirectory = Files.createTempDirectory("projection");
+        try(
+                Driver driver = GraphDatabase.driver(embeddedDatabaseServer.boltURI(), driverConfig);
+                Session session = driver.session()
+            ) {
+
+                Record record = session.run("CALL example.triangleCountApprox(1.0, {spillDirectory: $directory, timeoutMs: 60000})",
+                    Map.of("directory", spillDirectory.toString())).single();
+
+                assertThat(record.get("triangles").asDouble()).isEqualTo(45.0);
+        }
+    }
+
+    @Test
+    public void sameSeedGivesSameEstimate() {
+        try(
+                Driver driver = GraphDatabase.driver(embeddedDatabaseServer.boltURI(), driverConfig);
+                Session session = driver.session()
+            ) {
+
+                String query = "CALL example.triangleCountApprox(0.5, {seed: 7})";
+                Record first = session.run(query).single();
+                Record second = session.run(query).single();
+
+                assertThat(first.get("triangles").asDouble()).isEqualTo(second.get("triangles").asDouble());
+                assertThat(first.get("lowerBound").asDouble()).isLessThanOrEqualTo(first.get("triangles").asDouble());
+                assertThat(first.get("upperBound").asDouble()).isGreaterThanOrEqualTo(first.get("triangles").asDouble());
+        }
+    }
+
+    @Test
+    public void approximateHistogramHasOneBucketPerCount() {
+        try(
+                Driver driver = GraphDatabase.driver(embeddedDatabaseServer.boltURI(), driverConfig);
+                Session session = driver.session()
+            ) {
+
+                int lambda = 7;
+                String formattedTestQuery = String.format("CALL example.triangleHistogramApprox(%d, %f, 0.5)", lambda, 200.0d);
+                List<Record> records = session.run(formattedTestQuery).list();
+
+                assertThat(records).hasSize(lambda + 1);
+        }
+    }
+
+    @Test
+    public void negativeLambdaFailsTheHistogram() {
+        try(
+                Driver driver = GraphDatabase.driver(embeddedDatabaseServer.boltURI(), driverConfig);
+                Session session = driver.session()
+            ) {
+
+                assertThatThrownBy(() -> session.run("CALL example.triangleHistogramApprox(-1, 1.0, 0.5)").consume())
+                    .hasMessageContaining("lambda must not be negative, got -1");
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package example;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the triangle counting engine on synthetic graphs.
+ * Run with {@code mvn -Pbenchmark test}; see the README.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TriangleCountBenchmark {
+
+    @Param({"ERDOS_RENYI", "POWER_LAW", "RMAT"})
+    public SyntheticGraph.Model model;
+
+    @Param({"10000", "100000", "1000000"})
+    public int edges;
+
+    @Param({"1", "4"})
+    public int concurrency;
+
+    private GraphProjection graph;
+    private int hub;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        graph = SyntheticGraph.generate(model, edges, 42L).toProjection();
+        for (int u = 0; u < graph.nodeCount(); u++)
+        {
+            if (graph.degree(u) > graph.degree(hub))
+            {
+                hub = u;
+            }
+        }
+    }
+
+    /**
+     * Per-vertex and per-edge counts for the whole graph in one pass.
+     */
+    @Benchmark
+    public TriangleCounter countAll()
+    {
+        return TriangleCounter.count(graph, concurrency);
+    }
+
+    /**
+     * Recount of the triangles of the highest-degree vertex, the worst case
+     * of a single-vertex count.
+     */
+    @Benchmark
+    public void countHubVertex(Blackhole blackhole)
+    {
+        int sum = 0;
+        for (int slot = graph.start(hub); slot < graph.end(hub); slot++)
+        {
+            sum += TriangleCounter.intersect(graph, hub, graph.target(slot));
+        }
+        blackhole.consume(sum / 2);
+    }
+
+    /**
+     * Support of every edge computed independently, by merging or galloping
+     * through the two neighbour lists or probing a hub's bitset.
+     */
+    @Benchmark
+    public void countAllEdges(Blackhole blackhole)
+    {
+        for (int u = 0; u < graph.nodeCount(); u++)
+        {
+            for (int slot = graph.start(u); slot < graph.end(u); slot++)
+            {
+                if (graph.target(slot) > u)
+                {
+                    blackhole.consume(TriangleCounter.intersect(graph, u, graph.target(slot)));
+                }
+            }
+        }
+    }
+}
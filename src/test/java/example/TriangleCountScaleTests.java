@@ -0,0 +1,84 @@
+package example;
+
+import org.junit.jupiter.api.*;
+import org.neo4j.driver.*;
+import org.neo4j.harness.Neo4j;
+import org.neo4j.harness.Neo4jBuilders;
+
+import java.util.*;
+import java.util.stream.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the procedures on a generated graph that is much larger than the
+ * fixtures. The size defaults to something quick; pass e.g.
+ * {@code -Dscale.edges=2000000 -Dscale.model=RMAT} to look for complexity
+ * blow-ups locally.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class TriangleCountScaleTests {
+
+    private static final Config driverConfig = Config.builder().withoutEncryption().build();
+    private Neo4j embeddedDatabaseServer;
+    private SyntheticGraph graph;
+    private long[] nodeIds;
+
+    @BeforeAll
+    void initializeNeo4j() {
+        int edges = Integer.getInteger("scale.edges", 20000);
+        SyntheticGraph.Model model = SyntheticGraph.Model.valueOf(System.getProperty("scale.model", "PLANTED_CLIQUE"));
+        this.graph = SyntheticGraph.generate(model, edges, 42L);
+
+        this.embeddedDatabaseServer = Neo4jBuilders.newInProcessBuilder()
+            .withProcedure(TriangleCount.class)
+            .withProcedure(TriangleCountSecure.class)
+            .withFixture(db -> {
+                this.nodeIds = graph.loadInto(db, 50000);
+                return null;
+            })
+            .build();
+    }
+
+    @AfterAll
+    void stopNeo4j() {
+        this.embeddedDatabaseServer.close();
+    }
+
+    @Test
+    public void triangleCountMatchesInMemoryCount() {
+        try(
+                Driver driver = GraphDatabase.driver(embeddedDatabaseServer.boltURI(), driverConfig);
+                Session session = driver.session()
+            ) {
+
+                int[] expected = TriangleCounter.count(graph.toProjection()).vertexTriangles();
+                Map<Long, Long> byNodeId = session.run("CALL example.triangleCount({concurrency: 4})").stream()
+                    .collect(Collectors.toMap(record -> record.get("nodeId").asLong(), record -> record.get("triangleCount").asLong()));
+
+                assertThat(byNodeId).hasSize(graph.nodeCount);
+                for (int u = 0; u < graph.nodeCount; u++)
+                {
+                    assertThat(byNodeId.get(nodeIds[u])).isEqualTo((long) expected[u]);
+                }
+        }
+    }
+
+    @Test
+    public void virtualTruncationIsBounded() {
+        try(
+                Driver driver = GraphDatabase.driver(embeddedDatabaseServer.boltURI(), driverConfig);
+                Session session = driver.session()
+            ) {
+
+                int lambda = 5;
+                String formattedTestQuery = String.format("CALL example.triangleCountSecureVirtual(%d, {concurrency: 4})",lambda);
+                List<Long> triangleCounts = session.run(formattedTestQuery).list().stream()
+                    .map(record -> record.get("triangleCount").asLong())
+                    .collect(Collectors.toList());
+
+                assertThat(triangleCounts).hasSize(graph.nodeCount);
+                assertThat(Collections.max(triangleCounts)).isLessThanOrEqualTo(lambda);
+        }
+    }
+}
@@ -2,6 +2,8 @@ package example;
 
 import org.junit.jupiter.api.*;
 import org.neo4j.driver.*;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.RelationshipType;
 import org.neo4j.harness.Neo4j;
 import org.neo4j.harness.Neo4jBuilders;
 
@@ -13,6 +15,7 @@ import java.util.*;
 import java.util.stream.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 public class TriangleCountSecureTests {
@@ -20,6 +23,7 @@ public class TriangleCountSecureTests {
     private static final Config driverConfig = Config.builder().withoutEncryption().build();
     private static Driver driver;
     private Neo4j embeddedDatabaseServer;
+    private String fixture;
 
     @BeforeAll
     void initializeNeo4j() throws IOException {
@@ -28,10 +32,11 @@ public class TriangleCountSecureTests {
             in.transferTo(sw);
             sw.flush();
         }
+        this.fixture = sw.toString();
 
         this.embeddedDatabaseServer = Neo4jBuilders.newInProcessBuilder()
             .withProcedure(TriangleCountSecure.class)
-            .withFixture(sw.toString())
+            .withFixture(fixture)
             .build();
     }
 
@@ -53,7 +58,189 @@ public class TriangleCountSecureTests {
                     .collect(Collectors.toList());
                 
 
-                assertThat(Collections.max(triangleCounts) <= lambda);
+                assertThat(Collections.max(triangleCounts)).isLessThanOrEqualTo(lambda);
+        }
+    }
+
+    @Test
+    public void writeDeletesEveryRelationshipOfTheTruncatedEdges() {
+        int lambda = 3;
+        try(
+                Neo4j server = Neo4jBuilders.newInProcessBuilder()
+                    .withProcedure(TriangleCount.class)
+                    .withProcedure(TriangleCountSecure.class)
+                    .withFixture(fixture)
+                    .build();
+                Driver driver = GraphDatabase.driver(server.boltURI(), driverConfig);
+                Session session = driver.session()
+            ) {
+
+                // Give one of the edges truncation drops a second, parallel relationship
+                long[] truncated;
+                try (var tx = server.defaultDatabaseService().beginTx()) {
+                    GraphProjection graph = GraphProjection.load(tx, Label.label("Person"), true);
+                    new BestAdaptation(TriangleCounter.count(graph), lambda).run();
+                    truncated = graph.removedRelationshipIds();
+                    var relationship = tx.getRelationshipById(truncated[0]);
+                    relationship.getEndNode().createRelationshipTo(relationship.getStartNode(), RelationshipType.withName("KNOWS"));
+                    tx.commit();
+                }
+
+                // The projection is the same, so truncation drops the same edges and one more relationship
+                long[] expected;
+                try (var tx = server.defaultDatabaseService().beginTx()) {
+                    GraphProjection graph = GraphProjection.load(tx, Label.label("Person"), true);
+                    new BestAdaptation(TriangleCounter.count(graph), lambda).run();
+                    expected = graph.removedRelationshipIds();
+                }
+                assertThat(expected).hasSize(truncated.length + 1);
+
+                String countQuery = "MATCH (:Person)-[r]->(:Person) RETURN count(r) AS relationships";
+                long before = session.run(countQuery).single().get("relationships").asLong();
+
+                // Small batches, so the deletions span several transactions
+                session.run(String.format("CALL example.triangleCountSecure(%d, {batchSize: 7})", lambda)).consume();
+
+                assertThat(before - session.run(countQuery).single().get("relationships").asLong()).isEqualTo(expected.length);
+                assertThat(session.run("CALL example.triangleCountStats()").single().get("relationshipsDeleted").asLong()).isEqualTo(expected.length);
+                List<Long> ids = Arrays.stream(expected).boxed().collect(Collectors.toList());
+                assertThat(session.run("MATCH ()-[r]->() WHERE id(r) IN $ids RETURN count(r) AS left", Map.of("ids", ids))
+                    .single().get("left").asLong()).isZero();
+
+                // Counting the store from scratch must find it lambda-bounded
+                session.run("CALL example.clearProjectionCache()").consume();
+                List<Long> recounted = session.run("CALL example.triangleCount()").list().stream()
+                    .map(record -> record.get("triangleCount").asLong())
+                    .collect(Collectors.toList());
+                assertThat(Collections.max(recounted)).isLessThanOrEqualTo(lambda);
+        }
+    }
+
+    @Test
+    public void virtualDeletionLeavesStoreUntouched() {
+        try(
+                Driver driver = GraphDatabase.driver(embeddedDatabaseServer.boltURI(), driverConfig);
+                Session session = driver.session()
+            ) {
+
+                int lambda = 3;
+                String countQuery = "MATCH (:Person)-[r]-(:Person) RETURN count(r) AS relationships";
+                long before = session.run(countQuery).single().get("relationships").asLong();
+
+                String formattedTestQuery = String.format("CALL example.triangleCountSecureVirtual(%d)",lambda);
+                List<Long> triangleCounts = session.run(formattedTestQuery).list().stream()
+                    .map(record -> record.get("triangleCount").asLong())
+                    .collect(Collectors.toList());
+
+                assertThat(Collections.max(triangleCounts)).isLessThanOrEqualTo(lambda);
+                assertThat(session.run(countQuery).single().get("relationships").asLong()).isEqualTo(before);
+        }
+    }
+
+    @Test
+    public void parallelTruncationDependsOnlyOnTheSeed() {
+        try(
+                Driver driver = GraphDatabase.driver(embeddedDatabaseServer.boltURI(), driverConfig);
+                Session session = driver.session()
+            ) {
+
+                int lambda = 3;
+                String query = "CALL example.triangleCountSecureVirtual(%d, {concurrency: %d, parallelTruncation: true, seed: 7})";
+                Map<Long, Long> oneThread = session.run(String.format(query, lambda, 1)).stream()
+                    .collect(Collectors.toMap(record -> record.get("nodeId").asLong(), record -> record.get("triangleCount").asLong()));
+                Map<Long, Long> fourThreads = session.run(String.format(query, lambda, 4)).stream()
+                    .collect(Collectors.toMap(record -> record.get("nodeId").asLong(), record -> record.get("triangleCount").asLong()));
+
+                assertThat(fourThreads).isEqualTo(oneThread);
+                assertThat(Collections.max(fourThreads.values())).isLessThanOrEqualTo((long) lambda);
+        }
+    }
+
+    @Test
+    public void statsDescribeTheLatestRun() {
+        try(
+                Driver driver = GraphDatabase.driver(embeddedDatabaseServer.boltURI(), driverConfig);
+                Session session = driver.session()
+            ) {
+
+                session.run("CALL example.triangleCountSecureVirtual(2)").consume();
+                Record stats = session.run("CALL example.triangleCountStats()").single();
+
+                assertThat(stats.get("procedure").asString()).isEqualTo("example.triangleCountSecureVirtual");
+                assertThat(stats.get("phase").asString()).isEqualTo("DONE");
+                assertThat(stats.get("running").asBoolean()).isFalse();
+                assertThat(stats.get("verticesVisited").asLong()).isEqualTo(stats.get("nodes").asLong());
+                assertThat(stats.get("edgesDeleted").asLong()).isGreaterThan(0L);
+
+                session.run("CALL example.triangleCountSecureVirtual(2, {parallelTruncation: true, concurrency: 2})").consume();
+                stats = session.run("CALL example.triangleCountStats()").single();
+                assertThat(stats.get("verticesVisited").asLong()).isEqualTo(stats.get("nodes").asLong());
+        }
+    }
+
+    @Test
+    public void statsOfAnotherDbmsAreKeptApart() {
+        try(
+                Neo4j otherServer = Neo4jBuilders.newInProcessBuilder()
+                    .withProcedure(TriangleCountSecure.class)
+                    .build();
+                Driver driver = GraphDatabase.driver(embeddedDatabaseServer.boltURI(), driverConfig);
+                Session session = driver.session();
+                Driver otherDriver = GraphDatabase.driver(otherServer.boltURI(), driverConfig);
+                Session otherSession = otherDriver.session()
+            ) {
+
+                session.run("CALL example.triangleCountSecureVirtual(2)").consume();
+
+                // Both DBMSs call their default database "neo4j"
+                assertThat(otherSession.run("CALL example.triangleCountStats()").list().size()).isEqualTo(0);
+                assertThat(session.run("CALL example.triangleCountStats()").list().size()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void negativeLambdaFailsTheCall() {
+        try(
+                Driver driver = GraphDatabase.driver(embeddedDatabaseServer.boltURI(), driverConfig);
+                Session session = driver.session()
+            ) {
+
+                assertThatThrownBy(() -> session.run("CALL example.triangleCountSecureVirtual(-1)").consume())
+                    .hasMessageContaining("lambda must not be negative, got -1");
+                assertThatThrownBy(() -> session.run("CALL example.triangleHistogramSecureVirtual(-1, 1.0)").consume())
+                    .hasMessageContaining("lambda must not be negative, got -1");
+        }
+    }
+
+    @Test
+    public void lambdaSweepReturnsOneHistogramPerLambda() {
+        try(
+                Driver driver = GraphDatabase.driver(embeddedDatabaseServer.boltURI(), driverConfig);
+                Session session = driver.session()
+            ) {
+
+                List<Record> records = session.run("CALL example.triangleHistogramSecureSweep([2, 7, 4], 200.0)").list();
+
+                Map<Long, Long> rowsPerLambda = records.stream()
+                    .collect(Collectors.groupingBy(record -> record.get("lambda").asLong(), Collectors.counting()));
+                assertThat(rowsPerLambda).isEqualTo(Map.of(7L, 8L, 4L, 5L, 2L, 3L));
+                assertThat(records.get(0).get("lambda").asLong()).isEqualTo(7L);
+        }
+    }
+
+    @Test
+    public void batchPerturbsOneTruncationPerEpsilonAndDraw() {
+        try(
+                Driver driver = GraphDatabase.driver(embeddedDatabaseServer.boltURI(), driverConfig);
+                Session session = driver.session()
+            ) {
+
+                int lambda = 7;
+                String formattedTestQuery = String.format("CALL example.triangleHistogramSecureBatch(%d, [0.5, 1.0, 2.0], 4)", lambda);
+                List<Record> records = session.run(formattedTestQuery).list();
+
+                assertThat(records).hasSize(3 * 4 * (lambda + 1));
+                assertThat(records.stream().mapToDouble(record -> record.get("perturbedValue").asDouble()).min().getAsDouble()).isGreaterThanOrEqualTo(0.0);
         }
     }
 
@@ -77,7 +264,7 @@ public class TriangleCountSecureTests {
                     System.out.print(histogramStep + "\n");
                 }
 
-                assertThat(records.size() == (lambda + 1));
+                assertThat(records).hasSize(lambda + 1);
         }
     }
 
@@ -9,10 +9,13 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.stream.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 public class TriangleCountTests {
@@ -52,9 +55,78 @@ public class TriangleCountTests {
                 
 
                 System.out.println(triangleCounts);
-                
-                //Make real assertions later
-                assertThat(true);
+
+                // Zachary's karate club has 45 triangles, each counted at its three vertices
+                assertThat(triangleCounts).hasSize(34);
+                assertThat(triangleCounts.stream().mapToLong(Long::longValue).sum()).isEqualTo(3 * 45);
+        }
+    }
+
+    @Test
+    public void scopedTriangleCountTest() {
+        try(
+                Driver driver = GraphDatabase.driver(embeddedDatabaseServer.boltURI(), driverConfig);
+                Session session = driver.session()
+            ) {
+
+                session.run("CREATE (a:Scoped), (b:Scoped), (c:Scoped), (d:Other), "
+                    + "(a)-[:KNOWS]->(b), (b)-[:KNOWS]->(c), (c)-[:LIKES]->(a), (a)-[:KNOWS]->(d), (b)-[:KNOWS]->(d)").consume();
+
+                String query = "CALL example.triangleCount({label: 'Scoped', relationshipTypes: %s, direction: '%s'}) YIELD triangleCount RETURN sum(triangleCount) AS total";
+                assertThat(session.run(String.format(query, "[]", "BOTH")).single().get("total").asLong()).isEqualTo(3L);
+                assertThat(session.run(String.format(query, "[]", "incoming")).single().get("total").asLong()).isEqualTo(3L);
+                assertThat(session.run(String.format(query, "['KNOWS']", "OUTGOING")).single().get("total").asLong()).isEqualTo(0L);
+                assertThat(session.run(String.format(query, "['KNOWS', 'LIKES']", "OUTGOING")).single().get("total").asLong()).isEqualTo(3L);
+        }
+    }
+
+    @Test
+    public void unknownConfigKeysFailTheCall() {
+        try(
+                Driver driver = GraphDatabase.driver(embeddedDatabaseServer.boltURI(), driverConfig);
+                Session session = driver.session()
+            ) {
+
+                assertThatThrownBy(() -> session.run("CALL example.triangleCount({concurency: 4})").consume())
+                    .hasMessageContaining("Unknown config key 'concurency'");
+                assertThatThrownBy(() -> session.run("CALL example.triangleCount({concurrency: 'four'})").consume())
+                    .hasMessageContaining("config.concurrency must be a number");
+        }
+    }
+
+    @Test
+    public void parallelTriangleCountTest() {
+        try(
+                Driver driver = GraphDatabase.driver(embeddedDatabaseServer.boltURI(), driverConfig);
+                Session session = driver.session()
+            ) {
+
+                session.run("CALL example.clearProjectionCache()").consume();
+                Map<Long, Long> sequential = session.run("CALL example.triangleCount({concurrency: 1})").stream()
+                    .collect(Collectors.toMap(record -> record.get("nodeId").asLong(), record -> record.get("triangleCount").asLong()));
+                // Otherwise the second call is served the first call's counts from the cache
+                session.run("CALL example.clearProjectionCache()").consume();
+                Map<Long, Long> parallel = session.run("CALL example.triangleCount({concurrency: 4})").stream()
+                    .collect(Collectors.toMap(record -> record.get("nodeId").asLong(), record -> record.get("triangleCount").asLong()));
+
+                assertThat(parallel).isEqualTo(sequential);
+        }
+    }
+
+    @Test
+    public void spilledTriangleCountTest() throws IOException {
+        Path spillDirectory = Files.createTempDirectory("projection");
+        try(
+                Driver driver = GraphDatabase.driver(embeddedDatabaseServer.boltURI(), driverConfig);
+                Session session = driver.session()
+            ) {
+
+                Map<Long, Long> onHeap = session.run("CALL example.triangleCount({concurrency: 1})").stream()
+                    .collect(Collectors.toMap(record -> record.get("nodeId").asLong(), record -> record.get("triangleCount").asLong()));
+                Map<Long, Long> spilled = session.run("CALL example.triangleCount({concurrency: 2, spillDirectory: $directory})", Map.of("directory", spillDirectory.toString())).stream()
+                    .collect(Collectors.toMap(record -> record.get("nodeId").asLong(), record -> record.get("triangleCount").asLong()));
+
+                assertThat(spilled).isEqualTo(onHeap);
         }
     }
 
@@ -0,0 +1,73 @@
+package example;
+
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TriangleCounterTests {
+
+    @Test
+    public void parallelCountMatchesSequentialCount() {
+        for (SyntheticGraph.Model model : SyntheticGraph.Model.values()) {
+            GraphProjection graph = SyntheticGraph.generate(model, 100000, 42L).toProjection();
+
+            TriangleCounter sequential = TriangleCounter.count(graph, 1);
+            TriangleCounter parallel = TriangleCounter.count(graph, 4);
+
+            assertThat(parallel.vertexTriangles()).as(model.name()).isEqualTo(sequential.vertexTriangles());
+            for (int slot = 0; slot < graph.slotCount(); slot++) {
+                assertThat(parallel.edgeTriangles().get(slot)).as("%s slot %d", model, slot)
+                    .isEqualTo(sequential.edgeTriangles().get(slot));
+            }
+        }
+    }
+
+    @Test
+    public void removedEdgesKeepTheCountsExact() {
+        for (SyntheticGraph.Model model : SyntheticGraph.Model.values()) {
+            GraphProjection graph = SyntheticGraph.generate(model, 100000, 42L).toProjection();
+            TriangleCounter counter = TriangleCounter.count(graph);
+            SplittableRandom random = new SplittableRandom(7);
+
+            List<Integer> hubs = new ArrayList<>();
+            for (int u = 0; u < graph.nodeCount(); u++) {
+                if (graph.hubNeighbors(u) != null) {
+                    hubs.add(u);
+                }
+            }
+
+            int hubEdges = 0;
+            for (int round = 0; round < 5; round++) {
+                for (int i = 0; i < 500; i++) {
+                    // Every other edge from a hub, if there is one, so both intersection paths run
+                    int u = i % 2 == 0 && !hubs.isEmpty() ? hubs.get(random.nextInt(hubs.size())) : random.nextInt(graph.nodeCount());
+                    if (graph.end(u) == graph.start(u)) {
+                        continue;
+                    }
+                    int slot = graph.start(u) + random.nextInt(graph.end(u) - graph.start(u));
+                    if (graph.isRemoved(slot)) {
+                        continue;
+                    }
+                    int v = graph.target(slot);
+                    if (graph.hubNeighbors(u) != null || graph.hubNeighbors(v) != null) {
+                        hubEdges++;
+                    }
+                    int common = TriangleCounter.intersect(graph, u, v);
+                    assertThat(counter.removeEdge(u, v)).isEqualTo(common);
+                }
+
+                TriangleCounter fresh = TriangleCounter.count(graph);
+                assertThat(counter.vertexTriangles()).as("%s round %d", model, round).isEqualTo(fresh.vertexTriangles());
+                for (int slot = 0; slot < graph.slotCount(); slot++) {
+                    assertThat(counter.edgeTriangles().get(slot)).as("%s round %d slot %d", model, round, slot)
+                        .isEqualTo(fresh.edgeTriangles().get(slot));
+                }
+            }
+            if (model == SyntheticGraph.Model.POWER_LAW || model == SyntheticGraph.Model.RMAT) {
+                assertThat(hubEdges).as(model.name()).isGreaterThan(0);
+            }
+        }
+    }
+}